@@ -0,0 +1,129 @@
+import java.util.Arrays;
+
+/*
+BidirectionalSearch runs one uniform cost search forward from the source and one backward from the destination on the
+same RouteGraph. Every road is stored in both directions, so the backward search uses the same successors as the
+forward one. Each step expands the city with the lowest pathCost on the side whose fringe has the smaller minimum.
+Whenever a city has been reached from both sides, the route through it is a candidate and the cheapest candidate is
+kept. The search stops once the two smallest fringe keys add up to at least the best candidate, because any route not
+seen yet would have to be at least that long.
+*/
+public class BidirectionalSearch implements RouteFinder {
+	private static final int FORWARD = 0;
+	private static final int BACKWARD = 1;
+	final RouteGraph graph;
+	// Per side: cumulative path cost from the source (forward) or to the destination (backward), and the parent city
+	private final int[][] pathCost = new int[2][];
+	private final int[][] parent = new int[2][];
+	private final int[][] reached = new int[2][];
+	private final int[][] expanded = new int[2][];
+	private final IndexedMinHeap[] fringe = new IndexedMinHeap[2];
+	private int round = 0;
+	// Number of cities expanded by both sides in the last query
+	int expandedCount = 0;
+
+	public BidirectionalSearch(RouteGraph graph) {
+		this.graph = graph;
+		int n = graph.cityCount();
+		for(int side=0;side<2;side++) {
+			pathCost[side] = new int[n];
+			parent[side] = new int[n];
+			reached[side] = new int[n];
+			expanded[side] = new int[n];
+			fringe[side] = new IndexedMinHeap(n);
+		}
+	}
+
+	public String statistics() {
+		return "expanded: " + expandedCount;
+	}
+
+	public Route findRoute(int source, int destination) {
+		if(source < 0 || destination < 0) return null;
+		nextRound();
+		expandedCount = 0;
+		fringe[FORWARD].clear();
+		fringe[BACKWARD].clear();
+		reach(FORWARD, source, -1, 0);
+		reach(BACKWARD, destination, -1, 0);
+		fringe[FORWARD].insert(source, 0);
+		fringe[BACKWARD].insert(destination, 0);
+		int best = source == destination ? 0 : Integer.MAX_VALUE;
+		int meeting = source == destination ? source : -1;
+		while(!fringe[FORWARD].isEmpty() && !fringe[BACKWARD].isEmpty()) {
+			int forwardMin = fringe[FORWARD].minKey();
+			int backwardMin = fringe[BACKWARD].minKey();
+			if(best != Integer.MAX_VALUE && (long) forwardMin + backwardMin >= best) break;
+			int side = forwardMin <= backwardMin ? FORWARD : BACKWARD;
+			int other = 1 - side;
+			int city = fringe[side].poll();
+			expanded[side][city] = round;
+			expandedCount++;
+			int cost = pathCost[side][city];
+			for(int e=graph.offsets[city];e<graph.offsets[city+1];e++) {
+				int child = graph.targets[e];
+				if(expanded[side][child] == round) continue;
+				int childCost = cost + graph.weights[e];
+				if(reached[side][child] != round) {
+					reach(side, child, city, childCost);
+					fringe[side].insert(child, childCost);
+				} else if(childCost < pathCost[side][child]) {
+					reach(side, child, city, childCost);
+					fringe[side].decreaseKey(child, childCost);
+				}
+				// A city reached from both sides joins the two halves into a candidate route
+				if(reached[other][child] == round && pathCost[side][child] + pathCost[other][child] < best) {
+					best = pathCost[side][child] + pathCost[other][child];
+					meeting = child;
+				}
+			}
+		}
+		if(meeting == -1) return null;
+		return stitch(meeting);
+	}
+
+	/*
+	Joins the forward half from the source to the meeting city with the backward half from the meeting city to the
+	destination. The cumulative cost of a city in the backward half is the cost to the meeting city plus the difference
+	of the backward path costs.
+	*/
+	private Route stitch(int meeting) {
+		int forwardLength = 0;
+		for(int c=meeting;c!=-1;c=parent[FORWARD][c]) forwardLength++;
+		int backwardLength = 0;
+		for(int c=parent[BACKWARD][meeting];c!=-1;c=parent[BACKWARD][c]) backwardLength++;
+		int[] cities = new int[forwardLength + backwardLength];
+		int[] costs = new int[cities.length];
+		int i = forwardLength;
+		for(int c=meeting;c!=-1;c=parent[FORWARD][c]) {
+			i--;
+			cities[i] = c;
+			costs[i] = pathCost[FORWARD][c];
+		}
+		i = forwardLength;
+		int meetingCost = pathCost[FORWARD][meeting];
+		for(int c=parent[BACKWARD][meeting];c!=-1;c=parent[BACKWARD][c]) {
+			cities[i] = c;
+			costs[i] = meetingCost + pathCost[BACKWARD][meeting] - pathCost[BACKWARD][c];
+			i++;
+		}
+		return new Route(cities, costs);
+	}
+
+	private void reach(int side, int city, int from, int cost) {
+		reached[side][city] = round;
+		parent[side][city] = from;
+		pathCost[side][city] = cost;
+	}
+
+	private void nextRound() {
+		round++;
+		if(round == Integer.MAX_VALUE) {
+			for(int side=0;side<2;side++) {
+				Arrays.fill(reached[side], 0);
+				Arrays.fill(expanded[side], 0);
+			}
+			round = 1;
+		}
+	}
+}
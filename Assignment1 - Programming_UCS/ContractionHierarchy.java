@@ -0,0 +1,326 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/*
+ContractionHierarchy is the preprocessing for ContractionSearch. Cities are contracted one at a time, least important
+first: a contracted city is removed from the remaining graph, and for every pair of its remaining neighbours u and w a
+shortcut road u-w is added whose length is the route u-v-w, unless a witness search finds a route from u to w that is
+no longer without passing v. The order of contraction is the rank of a city, and the importance used to pick the next
+city is the number of shortcuts its contraction would add minus the number of roads it removes, plus the number of its
+neighbours contracted already so that the contracted cities are spread over the map.
+
+Only the upward roads are kept: when a city is contracted, its roads to the remaining cities all lead to cities of
+higher rank. They are stored as a CSR graph like RouteGraph, with the contracted city in the middle of every shortcut,
+or -1 for a real road, so that routes can be unpacked into the roads they are made of. Every shortest route climbs to
+its highest ranked city and descends from there, so a query only searches upward from both ends.
+
+Index file layout, little endian: magic, version, input size (long), input last modified (long), city count n,
+upward road count m, then offsets (n+1 ints), targets, weights and middles (m ints each).
+*/
+public class ContractionHierarchy {
+	private static final int MAGIC = 0x52544348; // "RTCH"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4 + 4;
+	// Witness searches give up after settling this many cities and keep the shortcut
+	private static final int WITNESS_LIMIT = 500;
+	// Smaller limit used when only estimating the importance of a city
+	private static final int ESTIMATE_WITNESS_LIMIT = 20;
+	final int[] offsets;
+	final int[] targets;
+	final int[] weights;
+	final int[] middles;
+
+	ContractionHierarchy(int[] offsets, int[] targets, int[] weights, int[] middles) {
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weights = weights;
+		this.middles = middles;
+	}
+
+//	Default index location for an input file
+	public static String indexFile(String inputFile) {
+		return inputFile + ".ch";
+	}
+
+	public int cityCount() {
+		return offsets.length - 1;
+	}
+
+	public int edgeCount() {
+		return targets.length;
+	}
+
+//	Number of upward roads which are shortcuts
+	public int shortcutCount() {
+		int count = 0;
+		for(int middle:middles) {
+			if(middle != -1) count++;
+		}
+		return count;
+	}
+
+//	Index of the upward road between two cities, stored with whichever of the two has the lower rank, or -1
+	int edgeBetween(int a, int b) {
+		for(int e=offsets[a];e<offsets[a+1];e++) {
+			if(targets[e] == b) return e;
+		}
+		for(int e=offsets[b];e<offsets[b+1];e++) {
+			if(targets[e] == a) return e;
+		}
+		return -1;
+	}
+
+	public static ContractionHierarchy build(RouteGraph graph) {
+		return new Contraction(graph).contractAll();
+	}
+
+//	Size of the index file in bytes
+	public long sizeInBytes() {
+		return HEADER_BYTES + 4L * offsets.length + 12L * targets.length;
+	}
+
+//	Writes the index to a file of its own and then moves it over the index file, so a concurrent run never maps it
+//	half written, see RouteGraphSnapshot.write
+	public void write(String indexFile, String inputFile) throws IOException {
+		File input = new File(inputFile);
+		File temp = RouteGraphSnapshot.createTemp(indexFile);
+		boolean published = false;
+		try {
+			RandomAccessFile file = new RandomAccessFile(temp, "rw");
+			try {
+				FileChannel channel = file.getChannel();
+				ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+				buffer.putInt(MAGIC).putInt(VERSION).putLong(input.length()).putLong(input.lastModified());
+				buffer.putInt(cityCount()).putInt(edgeCount());
+				for(int[] values:new int[][] {offsets, targets, weights, middles}) {
+					for(int value:values) {
+						if(buffer.remaining() < 4) flush(channel, buffer);
+						buffer.putInt(value);
+					}
+				}
+				flush(channel, buffer);
+			} finally {
+				file.close();
+			}
+			RouteGraphSnapshot.publish(temp, indexFile);
+			published = true;
+		} finally {
+			if(!published) temp.delete();
+		}
+	}
+
+//	Maps the index file. Returns null if it does not exist or was built for a different input or graph.
+	public static ContractionHierarchy load(String indexFile, String inputFile, RouteGraph graph) throws IOException {
+		File index = new File(indexFile);
+		File input = new File(inputFile);
+		if(!index.isFile() || index.length() < HEADER_BYTES) return null;
+		RandomAccessFile file = new RandomAccessFile(index, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+			if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION) return null;
+			if(buffer.getLong() != input.length() || buffer.getLong() != input.lastModified()) return null;
+			int n = buffer.getInt();
+			int m = buffer.getInt();
+			if(n != graph.cityCount() || channel.size() != HEADER_BYTES + 4L * (n + 1) + 12L * m) return null;
+			int[][] arrays = {new int[n+1], new int[m], new int[m], new int[m]};
+			for(int[] values:arrays) {
+				buffer.asIntBuffer().get(values);
+				buffer.position(buffer.position() + 4*values.length);
+			}
+			return new ContractionHierarchy(arrays[0], arrays[1], arrays[2], arrays[3]);
+		} finally {
+			file.close();
+		}
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) channel.write(buffer);
+		buffer.clear();
+	}
+
+	/*
+	The state of the preprocessing. The remaining graph is kept as one growable adjacency list per city, because
+	shortcuts are added and contracted cities removed all the time. Parallel roads are merged into the shortest one. Once
+	a city is contracted its list is never changed again and becomes its list of upward roads.
+	*/
+	private static class Contraction {
+		final int n;
+		final int[][] neighbours;
+		final int[][] lengths;
+		final int[][] middles;
+		final int[] degree;
+		final int[] contractedNeighbours;
+		// Length of the longest chain of contracted cities below a city
+		final int[] level;
+		// Witness search state, reused by every search with round stamps
+		final int[] witnessCost;
+		final int[] witnessRound;
+		final IndexedMinHeap witnessHeap;
+		int round = 0;
+		// target[c] == targetRound if c is one of the cities the current witness search has to reach
+		final int[] target;
+		int targetRound = 0;
+
+		Contraction(RouteGraph graph) {
+			n = graph.cityCount();
+			neighbours = new int[n][];
+			lengths = new int[n][];
+			middles = new int[n][];
+			degree = new int[n];
+			contractedNeighbours = new int[n];
+			level = new int[n];
+			witnessCost = new int[n];
+			witnessRound = new int[n];
+			witnessHeap = new IndexedMinHeap(n);
+			target = new int[n];
+			for(int v=0;v<n;v++) {
+				int size = graph.offsets[v+1] - graph.offsets[v];
+				neighbours[v] = new int[Math.max(size, 2)];
+				lengths[v] = new int[neighbours[v].length];
+				middles[v] = new int[neighbours[v].length];
+				for(int e=graph.offsets[v];e<graph.offsets[v+1];e++) {
+					if(graph.targets[e] != v) addRoad(v, graph.targets[e], graph.weights[e], -1);
+				}
+			}
+		}
+
+		ContractionHierarchy contractAll() {
+			IndexedMinHeap queue = new IndexedMinHeap(n);
+			for(int v=0;v<n;v++) queue.insert(v, importance(v));
+			while(!queue.isEmpty()) {
+				int v = queue.poll();
+				// The importance may be out of date, so only contract v if it is still the least important city
+				int current = importance(v);
+				if(!queue.isEmpty() && current > queue.minKey()) {
+					queue.insert(v, current);
+					continue;
+				}
+				contract(v, false);
+				for(int i=0;i<degree[v];i++) {
+					int u = neighbours[v][i];
+					removeRoad(u, v);
+					contractedNeighbours[u]++;
+					level[u] = Math.max(level[u], level[v] + 1);
+				}
+				for(int i=0;i<degree[v];i++) queue.changeKey(neighbours[v][i], importance(neighbours[v][i]));
+			}
+			int[] offsets = new int[n+1];
+			for(int v=0;v<n;v++) offsets[v+1] = offsets[v] + degree[v];
+			int[] targets = new int[offsets[n]];
+			int[] weights = new int[offsets[n]];
+			int[] middle = new int[offsets[n]];
+			for(int v=0;v<n;v++) {
+				System.arraycopy(neighbours[v], 0, targets, offsets[v], degree[v]);
+				System.arraycopy(lengths[v], 0, weights, offsets[v], degree[v]);
+				System.arraycopy(middles[v], 0, middle, offsets[v], degree[v]);
+			}
+			return new ContractionHierarchy(offsets, targets, weights, middle);
+		}
+
+		int importance(int v) {
+			return 2 * (contract(v, true) - degree[v]) + contractedNeighbours[v] + level[v];
+		}
+
+		/*
+		Finds the shortcuts needed to contract v and returns their number. Every pair of neighbours is handled once, from
+		the neighbour that comes first in the list of v. If estimate is set, the shortcuts are only counted.
+		*/
+		int contract(int v, boolean estimate) {
+			int shortcuts = 0;
+			for(int i=0;i<degree[v];i++) {
+				if(i == degree[v] - 1) break;
+				int u = neighbours[v][i];
+				int limit = 0;
+				targetRound++;
+				for(int j=i+1;j<degree[v];j++) {
+					limit = Math.max(limit, lengths[v][i] + lengths[v][j]);
+					target[neighbours[v][j]] = targetRound;
+				}
+				witnessSearch(u, v, limit, degree[v] - i - 1, estimate ? ESTIMATE_WITNESS_LIMIT : WITNESS_LIMIT);
+				for(int j=i+1;j<degree[v];j++) {
+					int w = neighbours[v][j];
+					int via = lengths[v][i] + lengths[v][j];
+					if(witnessRound[w] == round && witnessCost[w] <= via) continue;
+					shortcuts++;
+					if(!estimate) {
+						addRoad(u, w, via, v);
+						addRoad(w, u, via, v);
+					}
+				}
+			}
+			return shortcuts;
+		}
+
+		/*
+		Uniform cost search from source in the remaining graph without the city skip, up to the cost limit. It stops early
+		once all targets, the cities marked with the current targetRound, have been settled.
+		*/
+		void witnessSearch(int source, int skip, int limit, int targets, int maxSettled) {
+			round++;
+			witnessHeap.clear();
+			witnessRound[source] = round;
+			witnessCost[source] = 0;
+			witnessHeap.insert(source, 0);
+			int settled = 0;
+			while(!witnessHeap.isEmpty() && witnessHeap.minKey() <= limit && settled < maxSettled) {
+				int x = witnessHeap.poll();
+				settled++;
+				if(target[x] == targetRound && --targets == 0) break;
+				for(int i=0;i<degree[x];i++) {
+					int y = neighbours[x][i];
+					if(y == skip) continue;
+					int cost = witnessCost[x] + lengths[x][i];
+					if(witnessRound[y] != round) {
+						witnessRound[y] = round;
+						witnessCost[y] = cost;
+						witnessHeap.insert(y, cost);
+					} else if(cost < witnessCost[y] && witnessHeap.contains(y)) {
+						witnessCost[y] = cost;
+						witnessHeap.decreaseKey(y, cost);
+					}
+				}
+			}
+		}
+
+//		Adds the road from a to b, or shortens the road already there
+		void addRoad(int a, int b, int length, int middle) {
+			for(int i=0;i<degree[a];i++) {
+				if(neighbours[a][i] == b) {
+					if(length < lengths[a][i]) {
+						lengths[a][i] = length;
+						middles[a][i] = middle;
+					}
+					return;
+				}
+			}
+			if(degree[a] == neighbours[a].length) {
+				neighbours[a] = Arrays.copyOf(neighbours[a], degree[a] * 2);
+				lengths[a] = Arrays.copyOf(lengths[a], degree[a] * 2);
+				middles[a] = Arrays.copyOf(middles[a], degree[a] * 2);
+			}
+			neighbours[a][degree[a]] = b;
+			lengths[a][degree[a]] = length;
+			middles[a][degree[a]] = middle;
+			degree[a]++;
+		}
+
+		void removeRoad(int a, int b) {
+			for(int i=0;i<degree[a];i++) {
+				if(neighbours[a][i] == b) {
+					degree[a]--;
+					neighbours[a][i] = neighbours[a][degree[a]];
+					lengths[a][i] = lengths[a][degree[a]];
+					middles[a][i] = middles[a][degree[a]];
+					return;
+				}
+			}
+		}
+	}
+}
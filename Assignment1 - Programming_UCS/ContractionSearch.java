@@ -0,0 +1,166 @@
+import java.util.Arrays;
+
+/*
+ContractionSearch answers queries on a ContractionHierarchy. Like BidirectionalSearch it searches forward from the
+source and backward from the destination, but both sides only follow upward roads, so each side settles a small number
+of cities, fewer still because cities which can be reached more cheaply through a higher ranked city are stalled. A
+side stops once its smallest fringe key is at least the best route found, and the best route passes through the city
+where the two sides meet. Its shortcuts are then unpacked into the roads of the original graph, which gives
+the same legs find_route prints for every other search.
+*/
+public class ContractionSearch implements RouteFinder {
+	private static final int FORWARD = 0;
+	private static final int BACKWARD = 1;
+	final RouteGraph graph;
+	final ContractionHierarchy hierarchy;
+	private final int[][] pathCost = new int[2][];
+	private final int[][] parent = new int[2][];
+	private final int[][] reached = new int[2][];
+	private final IndexedMinHeap[] fringe = new IndexedMinHeap[2];
+	private int round = 0;
+	// Stack of the (from, to) pairs still to be unpacked, and the unpacked route
+	private int[] pending = new int[64];
+	private int[] cities = new int[64];
+	private int[] costs = new int[64];
+	// Number of cities expanded by both sides in the last query
+	int expandedCount = 0;
+
+	public ContractionSearch(RouteGraph graph, ContractionHierarchy hierarchy) {
+		this.graph = graph;
+		this.hierarchy = hierarchy;
+		int n = graph.cityCount();
+		for(int side=0;side<2;side++) {
+			pathCost[side] = new int[n];
+			parent[side] = new int[n];
+			reached[side] = new int[n];
+			fringe[side] = new IndexedMinHeap(n);
+		}
+	}
+
+	public String statistics() {
+		return "expanded: " + expandedCount;
+	}
+
+	public Route findRoute(int source, int destination) {
+		if(source < 0 || destination < 0) return null;
+		nextRound();
+		expandedCount = 0;
+		fringe[FORWARD].clear();
+		fringe[BACKWARD].clear();
+		reach(FORWARD, source, -1, 0);
+		reach(BACKWARD, destination, -1, 0);
+		fringe[FORWARD].insert(source, 0);
+		fringe[BACKWARD].insert(destination, 0);
+		int best = source == destination ? 0 : Integer.MAX_VALUE;
+		int meeting = source == destination ? source : -1;
+		while(true) {
+			boolean forward = !fringe[FORWARD].isEmpty() && fringe[FORWARD].minKey() < best;
+			boolean backward = !fringe[BACKWARD].isEmpty() && fringe[BACKWARD].minKey() < best;
+			if(!forward && !backward) break;
+			int side = forward && (!backward || fringe[FORWARD].minKey() <= fringe[BACKWARD].minKey()) ? FORWARD : BACKWARD;
+			int other = 1 - side;
+			int city = fringe[side].poll();
+			expandedCount++;
+			int cost = pathCost[side][city];
+			if(reached[other][city] == round && cost + pathCost[other][city] < best) {
+				best = cost + pathCost[other][city];
+				meeting = city;
+			}
+			if(stalled(side, city, cost)) continue;
+			for(int e=hierarchy.offsets[city];e<hierarchy.offsets[city+1];e++) {
+				int child = hierarchy.targets[e];
+				int childCost = cost + hierarchy.weights[e];
+				if(reached[side][child] != round) {
+					reach(side, child, city, childCost);
+					fringe[side].insert(child, childCost);
+				} else if(childCost < pathCost[side][child] && fringe[side].contains(child)) {
+					reach(side, child, city, childCost);
+					fringe[side].decreaseKey(child, childCost);
+				}
+			}
+		}
+		if(meeting == -1) return null;
+		return unpack(source, meeting);
+	}
+
+	/*
+	Stall on demand: the upward roads of a city are also the roads into it from cities of higher rank. If one of those
+	cities was reached at a cost that, with the road, is lower than the cost of the city, the city is not on a shortest
+	route of this side and its roads do not need to be followed.
+	*/
+	private boolean stalled(int side, int city, int cost) {
+		for(int e=hierarchy.offsets[city];e<hierarchy.offsets[city+1];e++) {
+			int from = hierarchy.targets[e];
+			if(reached[side][from] == round && pathCost[side][from] + hierarchy.weights[e] < cost) return true;
+		}
+		return false;
+	}
+
+	/*
+	Collects the upward roads from the source to the meeting city and from the meeting city down to the destination,
+	then replaces every shortcut by the two roads it was made of until only roads of the original graph are left.
+	*/
+	private Route unpack(int source, int meeting) {
+		// The pairs are pushed in reverse order of the route, so that the pair next to the source is unpacked first
+		int top = 0;
+		for(int c=meeting;parent[BACKWARD][c]!=-1;c=parent[BACKWARD][c]) top = push(top, c, parent[BACKWARD][c]);
+		reverse(pending, 0, top);
+		for(int c=meeting;parent[FORWARD][c]!=-1;c=parent[FORWARD][c]) top = push(top, parent[FORWARD][c], c);
+		int length = append(0, source, 0);
+		while(top > 0) {
+			int to = pending[--top];
+			int from = pending[--top];
+			int e = hierarchy.edgeBetween(from, to);
+			int middle = hierarchy.middles[e];
+			if(middle == -1) {
+				length = append(length, to, costs[length-1] + hierarchy.weights[e]);
+			} else {
+				top = push(top, middle, to);
+				top = push(top, from, middle);
+			}
+		}
+		return new Route(Arrays.copyOf(cities, length), Arrays.copyOf(costs, length));
+	}
+
+	private int push(int top, int from, int to) {
+		if(top + 2 > pending.length) pending = Arrays.copyOf(pending, pending.length * 2);
+		pending[top] = from;
+		pending[top+1] = to;
+		return top + 2;
+	}
+
+//	Reverses the order of the (from, to) pairs between the two stack positions
+	private static void reverse(int[] stack, int from, int to) {
+		for(int i=from, j=to-2;i<j;i+=2, j-=2) {
+			int a = stack[i], b = stack[i+1];
+			stack[i] = stack[j];
+			stack[i+1] = stack[j+1];
+			stack[j] = a;
+			stack[j+1] = b;
+		}
+	}
+
+	private int append(int length, int city, int cost) {
+		if(length == cities.length) {
+			cities = Arrays.copyOf(cities, length * 2);
+			costs = Arrays.copyOf(costs, length * 2);
+		}
+		cities[length] = city;
+		costs[length] = cost;
+		return length + 1;
+	}
+
+	private void reach(int side, int city, int from, int cost) {
+		reached[side][city] = round;
+		parent[side][city] = from;
+		pathCost[side][city] = cost;
+	}
+
+	private void nextRound() {
+		round++;
+		if(round == Integer.MAX_VALUE) {
+			for(int side=0;side<2;side++) Arrays.fill(reached[side], 0);
+			round = 1;
+		}
+	}
+}
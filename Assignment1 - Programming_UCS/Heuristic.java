@@ -0,0 +1,96 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+A Heuristic estimates the distance from a city to the destination of a query. A* only returns the least cost route if
+the estimate never exceeds the real distance. The implementations hold no per-query state, so one Heuristic can be
+shared by searches running in parallel.
+*/
+public interface Heuristic {
+	int estimate(int city, int destination);
+
+	// Whether the estimates hold for every destination, false for a table of estimates to one destination
+	default boolean anyDestination() {
+		return true;
+	}
+
+	/*
+	Reads a heuristic file in one of the following formats, ending at the END OF INPUT line or at the end of the file:
+	1) "city value" on every line: the estimated distance from the city to one destination, the one given here. For
+	any other destination the estimate is 0, so a table never makes A* return a longer route on another query.
+	2) "city x y" on every line: the coordinates of the city. The estimate is the straight line distance between the
+	city and the destination, which is admissible as long as no road is shorter than the straight line between its ends.
+	Cities that are not listed in the file get the estimate 0.
+	*/
+	static Heuristic load(String heuristicFile, RouteGraph graph, int destination) throws IOException {
+		List<String[]> lines = new ArrayList<String[]>();
+		BufferedReader br = new BufferedReader(new FileReader(heuristicFile));
+		try {
+			String line;
+			while((line=br.readLine()) != null && !line.equals("END OF INPUT")) {
+				String[] tokens = line.trim().split("\\s+");
+				if(tokens.length >= 2) lines.add(tokens);
+			}
+		} finally {
+			br.close();
+		}
+		boolean coordinates = !lines.isEmpty() && lines.get(0).length >= 3;
+		int n = graph.cityCount();
+		if(coordinates) {
+			double[] x = new double[n];
+			double[] y = new double[n];
+			boolean[] known = new boolean[n];
+			for(String[] tokens:lines) {
+				int city = graph.cityId(tokens[0]);
+				if(city < 0) continue;
+				x[city] = Double.parseDouble(tokens[1]);
+				y[city] = Double.parseDouble(tokens[2]);
+				known[city] = true;
+			}
+			return new CoordinateHeuristic(x, y, known);
+		}
+		int[] values = new int[n];
+		for(String[] tokens:lines) {
+			int city = graph.cityId(tokens[0]);
+			if(city >= 0) values[city] = Integer.parseInt(tokens[1]);
+		}
+		return new TableHeuristic(values, destination);
+	}
+}
+
+// Estimates read from a "city value" file. The values are distances to one fixed destination, and 0 for any other.
+class TableHeuristic implements Heuristic {
+	private final int[] values;
+	private final int destination;
+	TableHeuristic(int[] values, int destination) {
+		this.values = values;
+		this.destination = destination;
+	}
+	public int estimate(int city, int destination) {
+		return destination == this.destination ? values[city] : 0;
+	}
+	public boolean anyDestination() {
+		return false;
+	}
+}
+
+// Straight line distance between the coordinates of the city and the destination, rounded down
+class CoordinateHeuristic implements Heuristic {
+	private final double[] x;
+	private final double[] y;
+	private final boolean[] known;
+	CoordinateHeuristic(double[] x, double[] y, boolean[] known) {
+		this.x = x;
+		this.y = y;
+		this.known = known;
+	}
+	public int estimate(int city, int destination) {
+		if(!known[city] || !known[destination]) return 0;
+		double dx = x[city] - x[destination];
+		double dy = y[city] - y[destination];
+		return (int) Math.sqrt(dx*dx + dy*dy);
+	}
+}
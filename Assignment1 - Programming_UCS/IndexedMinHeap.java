@@ -0,0 +1,113 @@
+import java.util.Arrays;
+
+/*
+IndexedMinHeap is a binary min heap of city ids ordered by an int key (the cumulative path cost). position[c] stores
+the index of city c in the heap, or -1 if c is not in the heap, so that the key of a city already in the fringe can be
+decreased in place instead of adding a second entry for the same city. Each city is therefore in the heap at most once.
+Cities with equal keys are ordered by their id so that the search is deterministic.
+*/
+public class IndexedMinHeap {
+	private final int[] heap;
+	private final int[] keys;
+	private final int[] position;
+	private int size = 0;
+
+	public IndexedMinHeap(int capacity) {
+		heap = new int[capacity];
+		keys = new int[capacity];
+		position = new int[capacity];
+		Arrays.fill(position, -1);
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean contains(int id) {
+		return position[id] != -1;
+	}
+
+	public int key(int id) {
+		return keys[id];
+	}
+
+//	Smallest key in the heap. The heap must not be empty.
+	public int minKey() {
+		return keys[heap[0]];
+	}
+
+	public void insert(int id, int key) {
+		keys[id] = key;
+		heap[size] = id;
+		position[id] = size;
+		siftUp(size++);
+	}
+
+//	Lowers the key of a city which is already in the heap
+	public void decreaseKey(int id, int key) {
+		keys[id] = key;
+		siftUp(position[id]);
+	}
+
+//	Sets a new key, lower or higher, for a city which is already in the heap
+	public void changeKey(int id, int key) {
+		keys[id] = key;
+		siftUp(position[id]);
+		siftDown(position[id]);
+	}
+
+//	Removes and returns the city with the smallest key
+	public int poll() {
+		int top = heap[0];
+		position[top] = -1;
+		size--;
+		if(size > 0) {
+			heap[0] = heap[size];
+			position[heap[0]] = 0;
+			siftDown(0);
+		}
+		return top;
+	}
+
+//	Removes all cities from the heap. Only the entries still in the heap are touched.
+	public void clear() {
+		for(int i=0;i<size;i++) position[heap[i]] = -1;
+		size = 0;
+	}
+
+	private boolean less(int a, int b) {
+		return keys[a] < keys[b] || (keys[a] == keys[b] && a < b);
+	}
+
+	private void siftUp(int i) {
+		int id = heap[i];
+		while(i > 0) {
+			int p = (i - 1) >>> 1;
+			if(!less(id, heap[p])) break;
+			heap[i] = heap[p];
+			position[heap[i]] = i;
+			i = p;
+		}
+		heap[i] = id;
+		position[id] = i;
+	}
+
+	private void siftDown(int i) {
+		int id = heap[i];
+		int half = size >>> 1;
+		while(i < half) {
+			int child = 2*i + 1;
+			if(child + 1 < size && less(heap[child+1], heap[child])) child++;
+			if(!less(heap[child], id)) break;
+			heap[i] = heap[child];
+			position[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = id;
+		position[id] = i;
+	}
+}
@@ -0,0 +1,163 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/*
+LandmarkIndex is the preprocessing for ALT (A*, landmarks, triangle inequality) queries. It picks a few landmark cities
+and stores the distance from every landmark to every city. Since every road can be used in both directions, the
+triangle inequality gives for every landmark L: distance(v, t) >= |distance(L, t) - distance(L, v)|, and the largest of
+these bounds is used as the A* estimate.
+
+Landmarks are chosen one at a time as the city farthest from all landmarks chosen so far, starting from the city
+farthest from city 0, which places them on the edges of the map where they give the best bounds. The distances are
+stored city by city, so the K distances of one city share a cache line. Unreachable cities have the distance UNREACHABLE.
+
+Index file layout, little endian: magic, version, input size (long), input last modified (long), city count n,
+landmark count K, K landmark ids, n*K distances.
+*/
+public class LandmarkIndex implements Heuristic {
+	static final int UNREACHABLE = ShortestPathTree.UNREACHABLE;
+	private static final int MAGIC = 0x52544c4d; // "RTLM"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4 + 4;
+	final int[] landmarks;
+	// distances[v*K + i] is the distance from landmark i to city v
+	final int[] distances;
+
+	LandmarkIndex(int[] landmarks, int[] distances) {
+		this.landmarks = landmarks;
+		this.distances = distances;
+	}
+
+//	Default index location for an input file
+	public static String indexFile(String inputFile) {
+		return inputFile + ".landmarks";
+	}
+
+	public int estimate(int city, int destination) {
+		int k = landmarks.length;
+		int best = 0;
+		for(int i=0;i<k;i++) {
+			int toCity = distances[city*k + i];
+			int toDestination = distances[destination*k + i];
+			if(toCity == UNREACHABLE || toDestination == UNREACHABLE) continue;
+			int bound = Math.abs(toDestination - toCity);
+			if(bound > best) best = bound;
+		}
+		return best;
+	}
+
+//	Chooses k landmarks and runs a full uniform cost search from each of them
+	public static LandmarkIndex build(RouteGraph graph, int k) {
+		int n = graph.cityCount();
+		RouteSearch search = new RouteSearch(graph);
+		int[][] fromLandmark = new int[Math.min(k, n)][];
+		int[] landmarks = new int[fromLandmark.length];
+		// Smallest distance from any chosen landmark, used to choose the next one
+		int[] nearest = new int[n];
+		int chosen = 0;
+		while(chosen < landmarks.length) {
+			int landmark = chosen == 0 ? farthest(search.distancesFrom(0), false) : farthest(nearest, true);
+			if(landmark < 0) break; // Every city is a landmark already
+			landmarks[chosen] = landmark;
+			fromLandmark[chosen] = search.distancesFrom(landmark);
+			for(int v=0;v<n;v++) {
+				if(chosen == 0 || fromLandmark[chosen][v] < nearest[v]) nearest[v] = fromLandmark[chosen][v];
+			}
+			chosen++;
+		}
+		int[] distances = new int[n*chosen];
+		for(int v=0;v<n;v++) {
+			for(int i=0;i<chosen;i++) distances[v*chosen + i] = fromLandmark[i][v];
+		}
+		return new LandmarkIndex(Arrays.copyOf(landmarks, chosen), distances);
+	}
+
+	/*
+	Returns the city with the largest distance which is not 0. If unreachableFirst is set, cities with the distance
+	UNREACHABLE come first, so that every connected part of the map receives a landmark; otherwise they are skipped.
+	Returns -1 if no city qualifies.
+	*/
+	private static int farthest(int[] distance, boolean unreachableFirst) {
+		int best = -1;
+		long bestDistance = 0;
+		for(int v=0;v<distance.length;v++) {
+			long d = distance[v] == UNREACHABLE ? (unreachableFirst ? Long.MAX_VALUE : -1) : distance[v];
+			if(d > bestDistance) {
+				best = v;
+				bestDistance = d;
+			}
+		}
+		return best;
+	}
+
+//	Size of the index file in bytes
+	public long sizeInBytes() {
+		return HEADER_BYTES + 4L * landmarks.length + 4L * distances.length;
+	}
+
+//	Writes the index to a file of its own and then moves it over the index file, so a concurrent run never maps it
+//	half written, see RouteGraphSnapshot.write
+	public void write(String indexFile, String inputFile) throws IOException {
+		File input = new File(inputFile);
+		File temp = RouteGraphSnapshot.createTemp(indexFile);
+		boolean published = false;
+		try {
+			RandomAccessFile file = new RandomAccessFile(temp, "rw");
+			try {
+				FileChannel channel = file.getChannel();
+				ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+				buffer.putInt(MAGIC).putInt(VERSION).putLong(input.length()).putLong(input.lastModified());
+				buffer.putInt(landmarks.length == 0 ? 0 : distances.length / landmarks.length).putInt(landmarks.length);
+				for(int[] values:new int[][] {landmarks, distances}) {
+					for(int value:values) {
+						if(buffer.remaining() < 4) flush(channel, buffer);
+						buffer.putInt(value);
+					}
+				}
+				flush(channel, buffer);
+			} finally {
+				file.close();
+			}
+			RouteGraphSnapshot.publish(temp, indexFile);
+			published = true;
+		} finally {
+			if(!published) temp.delete();
+		}
+	}
+
+//	Maps the index file. Returns null if it does not exist or was built for a different input or graph.
+	public static LandmarkIndex load(String indexFile, String inputFile, RouteGraph graph) throws IOException {
+		File index = new File(indexFile);
+		File input = new File(inputFile);
+		if(!index.isFile() || index.length() < HEADER_BYTES) return null;
+		RandomAccessFile file = new RandomAccessFile(index, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+			if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION) return null;
+			if(buffer.getLong() != input.length() || buffer.getLong() != input.lastModified()) return null;
+			int n = buffer.getInt();
+			int k = buffer.getInt();
+			if((k > 0 && n != graph.cityCount()) || channel.size() != HEADER_BYTES + 4L * k + 4L * n * k) return null;
+			int[] landmarks = new int[k];
+			int[] distances = new int[n*k];
+			buffer.asIntBuffer().get(landmarks);
+			buffer.position(buffer.position() + 4*k);
+			buffer.asIntBuffer().get(distances);
+			return new LandmarkIndex(landmarks, distances);
+		} finally {
+			file.close();
+		}
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) channel.write(buffer);
+		buffer.clear();
+	}
+}
@@ -0,0 +1,13 @@
+// A Route stores the cities on a shortest path from the source to the destination together with the cumulative
+// path cost to reach each of them, so that the distance of every leg can be printed the same way as printOutput does
+class Route {
+	int[] cities;
+	int[] pathCosts;
+	Route(int[] cities, int[] pathCosts) {
+		this.cities = cities;
+		this.pathCosts = pathCosts;
+	}
+	int distance() {
+		return pathCosts[pathCosts.length-1];
+	}
+}
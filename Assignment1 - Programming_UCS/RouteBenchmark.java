@@ -0,0 +1,380 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/*
+Benchmarks for find_route. Usage:
+1) RouteBenchmark generate <file> <cities> <roads>: writes a random road network in the find_route input format. The cities
+   are laid out on a grid with roads between neighbours, and the remaining roads connect random nearby cities. No road
+   is shorter than the straight line between the grid positions of its cities, 10 km apart on the grid.
+2) RouteBenchmark compare <file> <queries>: loads the file into the successorMap of find_route and into a RouteGraph,
+   and prints the heap used by each together with load and search times over the same random queries.
+3) RouteBenchmark fringe <file> <queries>: compares the lazy heap and the IndexedMinHeap fringe of RouteSearch on the
+   same random queries, with the number of polls and the largest fringe size seen.
+4) RouteBenchmark load <file> <threads>: compares the load time of find_route.parseInputFile, RouteGraph.load and the
+   memory-mapped RouteGraphLoader with 1 and with the given number of threads.
+5) RouteBenchmark snapshot <file>: compares loading the text input with writing and then loading a RouteGraphSnapshot.
+6) RouteBenchmark coordinates <file> <cities>: writes the grid positions of the generated cities as a heuristic file.
+7) RouteBenchmark astar <file> <heuristic> <queries>: compares uniform cost search and A* on the same random queries.
+8) RouteBenchmark bidirectional <file> <queries>: compares uniform cost search and BidirectionalSearch.
+9) RouteBenchmark alt <file> <landmarks> <queries>: builds a LandmarkIndex, prints its build time and size, and compares
+   uniform cost search and A* with the landmark bounds.
+10) RouteBenchmark ch <file> <queries>: builds a ContractionHierarchy, prints its build time and size, and checks
+   ContractionSearch against uniform cost search on random queries: the distances must agree, and every leg of the
+   unpacked routes must be a road of the input. The first queries are also checked against find_route itself.
+11) RouteBenchmark matrix <file> <cities> <threads>: computes the distance matrix between random cities with 1 and with
+   the given number of threads, and checks random entries against single queries.
+*/
+public class RouteBenchmark {
+	static final long SEED = 5360;
+
+	public static void main(String[] args) throws IOException {
+		if(args.length == 4 && args[0].equals("generate")) {
+			generate(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+		} else if(args.length == 3 && args[0].equals("compare")) {
+			compare(args[1], Integer.parseInt(args[2]));
+		} else if(args.length == 3 && args[0].equals("load")) {
+			compareLoaders(args[1], Integer.parseInt(args[2]));
+		} else if(args.length == 3 && args[0].equals("coordinates")) {
+			writeCoordinates(args[1], Integer.parseInt(args[2]));
+		} else if(args.length == 4 && args[0].equals("astar")) {
+			compareAStar(args[1], args[2], Integer.parseInt(args[3]));
+		} else if(args.length == 3 && args[0].equals("bidirectional")) {
+			RouteGraph graph = RouteGraph.load(args[1]);
+			compareFinders(graph, new RouteSearch(graph).useIndexedFringe(), new BidirectionalSearch(graph), Integer.parseInt(args[2]));
+		} else if(args.length == 4 && args[0].equals("alt")) {
+			compareLandmarks(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+		} else if(args.length == 3 && args[0].equals("ch")) {
+			compareHierarchy(args[1], Integer.parseInt(args[2]));
+		} else if(args.length == 4 && args[0].equals("matrix")) {
+			compareMatrix(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+		} else if(args.length == 2 && args[0].equals("snapshot")) {
+			compareSnapshot(args[1]);
+		} else if(args.length == 3 && args[0].equals("fringe")) {
+			compareFringes(args[1], Integer.parseInt(args[2]));
+		} else {
+			System.out.println("Enter valid input arguments");
+		}
+	}
+
+	static void generate(String file, int cities, int roads) throws IOException {
+		Random random = new Random(SEED);
+		int width = (int) Math.ceil(Math.sqrt(cities));
+		BufferedWriter bw = new BufferedWriter(new FileWriter(file), 1 << 16);
+		int written = 0;
+		for(int i=0;i<cities && written<roads;i++) {
+			if((i+1) % width != 0 && i+1 < cities) {
+				bw.write("C" + i + " C" + (i+1) + " " + (10 + random.nextInt(90)) + "\n");
+				written++;
+			}
+			if(i+width < cities && written < roads) {
+				bw.write("C" + i + " C" + (i+width) + " " + (10 + random.nextInt(90)) + "\n");
+				written++;
+			}
+		}
+		while(written < roads) {
+			int a = random.nextInt(cities);
+			int b = Math.min(cities-1, Math.max(0, a + (random.nextInt(7)-3) * width + random.nextInt(7)-3));
+			if(a == b) continue;
+			int straightLine = (int) Math.ceil(10 * Math.hypot(a % width - b % width, a / width - b / width));
+			bw.write("C" + a + " C" + b + " " + (straightLine + random.nextInt(200)) + "\n");
+			written++;
+		}
+		bw.write("END OF INPUT\n");
+		bw.close();
+		System.out.println("Wrote " + cities + " cities and " + written + " roads to " + file);
+	}
+
+	static void writeCoordinates(String file, int cities) throws IOException {
+		int width = (int) Math.ceil(Math.sqrt(cities));
+		BufferedWriter bw = new BufferedWriter(new FileWriter(file), 1 << 16);
+		for(int i=0;i<cities;i++) bw.write("C" + i + " " + (i % width) * 10 + " " + (i / width) * 10 + "\n");
+		bw.write("END OF INPUT\n");
+		bw.close();
+	}
+
+	static void compare(String file, int queries) {
+		long before = usedHeap();
+		long start = System.nanoTime();
+		find_route fr = new find_route();
+		fr.parseInputFile(file);
+		long mapLoad = System.nanoTime() - start;
+		long mapHeap = usedHeap() - before;
+
+		before = usedHeap();
+		start = System.nanoTime();
+		RouteGraph graph = RouteGraph.load(file);
+		long graphLoad = System.nanoTime() - start;
+		long graphHeap = usedHeap() - before;
+		System.out.println("cities: " + graph.cityCount() + ", directed edges: " + graph.edgeCount());
+		System.out.println("successorMap: load " + millis(mapLoad) + " ms, heap " + mb(mapHeap) + " MB");
+		System.out.println("RouteGraph:   load " + millis(graphLoad) + " ms, heap " + mb(graphHeap) + " MB");
+
+		int[][] pairs = randomPairs(graph, queries);
+		RouteSearch search = new RouteSearch(graph);
+		long mapNanos = 0, graphNanos = 0;
+		for(int[] pair:pairs) {
+			String source = graph.cityName(pair[0]);
+			String destination = graph.cityName(pair[1]);
+			start = System.nanoTime();
+			fr.searchSuccessorMap(source, destination);
+			mapNanos += System.nanoTime() - start;
+			start = System.nanoTime();
+			Route route = search.findRoute(pair[0], pair[1]);
+			graphNanos += System.nanoTime() - start;
+			Object[] expected = fr.routeMap.get(destination);
+			int mapDistance = expected == null ? -1 : (Integer) expected[1];
+			int graphDistance = route == null ? -1 : route.distance();
+			if(mapDistance != graphDistance) {
+				System.out.println("Mismatch for " + source + " -> " + destination + ": " + mapDistance + " vs " + graphDistance);
+			}
+		}
+		System.out.println("successorMap: " + queries + " queries in " + millis(mapNanos) + " ms");
+		System.out.println("RouteGraph:   " + queries + " queries in " + millis(graphNanos) + " ms");
+	}
+
+	static void compareFringes(String file, int queries) {
+		RouteGraph graph = RouteGraph.load(file);
+		int[][] pairs = randomPairs(graph, queries);
+		RouteSearch lazy = new RouteSearch(graph);
+		RouteSearch indexed = new RouteSearch(graph).useIndexedFringe();
+		// Warm up both searches before measuring
+		for(int i=0;i<Math.min(queries, 20);i++) {
+			lazy.findRoute(pairs[i][0], pairs[i][1]);
+			indexed.findRoute(pairs[i][0], pairs[i][1]);
+		}
+		long[] lazyStats = runQueries(lazy, pairs);
+		long[] indexedStats = runQueries(indexed, pairs);
+		System.out.println("lazy:    " + millis(lazyStats[0]) + " ms, polls " + lazyStats[1] + ", max fringe " + lazyStats[2]);
+		System.out.println("indexed: " + millis(indexedStats[0]) + " ms, polls " + indexedStats[1] + ", max fringe " + indexedStats[2]);
+	}
+
+	static void compareLoaders(String file, int threads) throws IOException {
+		for(int run=0;run<3;run++) {
+			// The first runs warm up the JIT and the page cache, only the last one is reported
+			boolean report = run == 2;
+			usedHeap();
+			long start = System.nanoTime();
+			new find_route().parseInputFile(file);
+			long mapLoad = System.nanoTime() - start;
+			usedHeap();
+			start = System.nanoTime();
+			RouteGraph text = RouteGraph.load(file);
+			long textLoad = System.nanoTime() - start;
+			usedHeap();
+			start = System.nanoTime();
+			RouteGraph single = RouteGraphLoader.load(file, 1);
+			long singleLoad = System.nanoTime() - start;
+			usedHeap();
+			start = System.nanoTime();
+			RouteGraph parallel = RouteGraphLoader.load(file, threads);
+			long parallelLoad = System.nanoTime() - start;
+			if(!report) continue;
+			if(!sameGraph(text, single) || !sameGraph(text, parallel)) System.out.println("Loaders disagree");
+			System.out.println("parseInputFile:             " + millis(mapLoad) + " ms");
+			System.out.println("RouteGraph.load:            " + millis(textLoad) + " ms");
+			System.out.println("RouteGraphLoader 1 thread:  " + millis(singleLoad) + " ms");
+			System.out.println("RouteGraphLoader " + threads + " threads: " + millis(parallelLoad) + " ms");
+		}
+	}
+
+//	Whether the graphs have the same cities with the same ids and the same edges in the same order
+	static boolean sameGraph(RouteGraph a, RouteGraph b) {
+		if(a.cityCount() != b.cityCount() || !Arrays.equals(a.offsets, b.offsets) || !Arrays.equals(a.targets, b.targets)
+				|| !Arrays.equals(a.weights, b.weights)) return false;
+		for(int i=0;i<a.cityCount();i++) {
+			if(!a.cityName(i).equals(b.cityName(i))) return false;
+		}
+		return true;
+	}
+
+	static void compareSnapshot(String file) throws IOException {
+		String snapshotFile = RouteGraphSnapshot.snapshotFile(file);
+		long start = System.nanoTime();
+		RouteGraph graph = RouteGraphLoader.load(file, Runtime.getRuntime().availableProcessors());
+		long textLoad = System.nanoTime() - start;
+		start = System.nanoTime();
+		RouteGraphSnapshot.write(graph, snapshotFile, file);
+		long write = System.nanoTime() - start;
+		graph = null;
+		usedHeap();
+		start = System.nanoTime();
+		RouteGraph mapped = RouteGraphSnapshot.load(snapshotFile, file);
+		long snapshotLoad = System.nanoTime() - start;
+		System.out.println("cities: " + mapped.cityCount() + ", directed edges: " + mapped.edgeCount());
+		System.out.println("text load:     " + millis(textLoad) + " ms");
+		System.out.println("snapshot save: " + millis(write) + " ms (" + mb(new java.io.File(snapshotFile).length()) + " MB)");
+		System.out.println("snapshot load: " + millis(snapshotLoad) + " ms");
+	}
+
+	static void compareAStar(String file, String heuristicFile, int queries) throws IOException {
+		RouteGraph graph = RouteGraph.load(file);
+		Heuristic heuristic = Heuristic.load(heuristicFile, graph, find_route.ANY_DESTINATION);
+		if(!heuristic.anyDestination()) {
+			System.out.println("astar needs a file of \"city x y\" coordinates: the queries go to random destinations.");
+			return;
+		}
+		compareFinders(graph, new RouteSearch(graph).useIndexedFringe(), new RouteSearch(graph).useHeuristic(heuristic), queries);
+	}
+
+	static void compareLandmarks(String file, int k, int queries) {
+		RouteGraph graph = RouteGraph.load(file);
+		long start = System.nanoTime();
+		LandmarkIndex index = LandmarkIndex.build(graph, k);
+		System.out.println("LandmarkIndex: " + index.landmarks.length + " landmarks, build " + millis(System.nanoTime() - start) 
+				+ " ms, size " + mb(index.sizeInBytes()) + " MB");
+		compareFinders(graph, new RouteSearch(graph).useIndexedFringe(), new RouteSearch(graph).useHeuristic(index), queries);
+	}
+
+	static void compareHierarchy(String file, int queries) {
+		RouteGraph graph = RouteGraph.load(file);
+		long start = System.nanoTime();
+		ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+		System.out.println("ContractionHierarchy: build " + millis(System.nanoTime() - start) + " ms, " + hierarchy.shortcutCount() 
+				+ " shortcuts, " + hierarchy.edgeCount() + " upward roads, size " + mb(hierarchy.sizeInBytes()) + " MB");
+		ContractionSearch search = new ContractionSearch(graph, hierarchy);
+		compareFinders(graph, new RouteSearch(graph).useIndexedFringe(), search, queries);
+		int[][] pairs = randomPairs(graph, queries);
+		int invalid = 0;
+		for(int[] pair:pairs) {
+			if(!isRoute(graph, search.findRoute(pair[0], pair[1]))) invalid++;
+		}
+		System.out.println("unpacked routes with a leg that is not a road: " + invalid);
+		// find_route searches the successorMap, which is slow on large inputs, so only the first queries are checked
+		find_route fr = new find_route();
+		fr.parseInputFile(file);
+		for(int i=0;i<Math.min(queries, 5);i++) {
+			String source = graph.cityName(pairs[i][0]);
+			String destination = graph.cityName(pairs[i][1]);
+			fr.searchSuccessorMap(source, destination);
+			Object[] expected = fr.routeMap.get(destination);
+			Route route = search.findRoute(pairs[i][0], pairs[i][1]);
+			int expectedDistance = expected == null ? -1 : (Integer) expected[1];
+			if(expectedDistance != (route == null ? -1 : route.distance())) {
+				System.out.println("Mismatch with find_route for " + source + " -> " + destination);
+			}
+		}
+	}
+
+	static void compareMatrix(String file, int cities, int threads) {
+		RouteGraph graph = RouteGraph.load(file);
+		int[][] pairs = randomPairs(graph, cities);
+		int[] sources = new int[cities];
+		int[] targets = new int[cities];
+		for(int i=0;i<cities;i++) {
+			sources[i] = pairs[i][0];
+			targets[i] = pairs[i][1];
+		}
+		long start = System.nanoTime();
+		RouteMatrix single = RouteMatrix.compute(graph, sources, targets, 1);
+		long singleNanos = System.nanoTime() - start;
+		start = System.nanoTime();
+		RouteMatrix parallel = RouteMatrix.compute(graph, sources, targets, threads);
+		long parallelNanos = System.nanoTime() - start;
+		System.out.println(cities + "x" + cities + " matrix, 1 thread: " + millis(singleNanos) + " ms");
+		System.out.println(cities + "x" + cities + " matrix, " + threads + " threads: " + millis(parallelNanos) + " ms");
+		if(!java.util.Arrays.equals(single.distances, parallel.distances)) System.out.println("Matrices differ");
+		RouteSearch search = new RouteSearch(graph);
+		Random random = new Random(SEED);
+		start = System.nanoTime();
+		int checks = Math.min(100, cities * cities);
+		for(int k=0;k<checks;k++) {
+			int i = random.nextInt(cities), j = random.nextInt(cities);
+			Route route = search.findRoute(sources[i], targets[j]);
+			int expected = route == null ? ShortestPathTree.UNREACHABLE : route.distance();
+			if(expected != single.distance(i, j)) System.out.println("Mismatch at " + i + "," + j);
+		}
+		long perQuery = (System.nanoTime() - start) / checks;
+		System.out.println("single queries: " + millis(perQuery * cities * cities) + " ms estimated for the whole matrix");
+	}
+
+//	Checks that every leg of the route is a road of the graph with the length given by the cumulative path costs
+	static boolean isRoute(RouteGraph graph, Route route) {
+		if(route == null) return true;
+		for(int i=1;i<route.cities.length;i++) {
+			int leg = route.pathCosts[i] - route.pathCosts[i-1];
+			boolean found = false;
+			for(int e=graph.offsets[route.cities[i-1]];e<graph.offsets[route.cities[i-1]+1] && !found;e++) {
+				found = graph.targets[e] == route.cities[i] && graph.weights[e] == leg;
+			}
+			if(!found) return false;
+		}
+		return true;
+	}
+
+//	Runs the same random queries with both finders, checks that the distances agree and prints time and statistics
+	static void compareFinders(RouteGraph graph, RouteFinder expected, RouteFinder actual, int queries) {
+		int[][] pairs = randomPairs(graph, queries);
+		long expectedNanos = 0, actualNanos = 0;
+		long[] expectedCounts = new long[3], actualCounts = new long[3];
+		for(int[] pair:pairs) {
+			long start = System.nanoTime();
+			Route expectedRoute = expected.findRoute(pair[0], pair[1]);
+			expectedNanos += System.nanoTime() - start;
+			addCounts(expectedCounts, expected.statistics());
+			start = System.nanoTime();
+			Route actualRoute = actual.findRoute(pair[0], pair[1]);
+			actualNanos += System.nanoTime() - start;
+			addCounts(actualCounts, actual.statistics());
+			checkDistance(graph, pair, expectedRoute, actualRoute);
+		}
+		System.out.println(expected.getClass().getName() + ": " + millis(expectedNanos) + " ms, expanded per query " + expectedCounts[0] / queries);
+		System.out.println(actual.getClass().getName() + ": " + millis(actualNanos) + " ms, expanded per query " + actualCounts[0] / queries);
+	}
+
+//	Adds the numbers in a statistics string such as "expanded: 15, polled: 15" to the totals
+	static void addCounts(long[] totals, String statistics) {
+		String[] parts = statistics.split(", ");
+		for(int i=0;i<parts.length && i<totals.length;i++) {
+			totals[i] += Long.parseLong(parts[i].substring(parts[i].indexOf(": ") + 2));
+		}
+	}
+
+	static void checkDistance(RouteGraph graph, int[] pair, Route expected, Route actual) {
+		int expectedDistance = expected == null ? -1 : expected.distance();
+		int actualDistance = actual == null ? -1 : actual.distance();
+		if(expectedDistance != actualDistance) {
+			System.out.println("Mismatch for " + graph.cityName(pair[0]) + " -> " + graph.cityName(pair[1]) + ": " 
+					+ expectedDistance + " vs " + actualDistance);
+		}
+	}
+
+//	Runs all queries and returns the total time, the total number of polls and the largest fringe size
+	static long[] runQueries(RouteSearch search, int[][] pairs) {
+		long[] stats = new long[3];
+		long start = System.nanoTime();
+		for(int[] pair:pairs) {
+			search.findRoute(pair[0], pair[1]);
+			stats[1] += search.pollCount;
+			stats[2] = Math.max(stats[2], search.maxFringeSize);
+		}
+		stats[0] = System.nanoTime() - start;
+		return stats;
+	}
+
+	static int[][] randomPairs(RouteGraph graph, int queries) {
+		Random random = new Random(SEED);
+		int[][] pairs = new int[queries][2];
+		for(int i=0;i<queries;i++) {
+			pairs[i][0] = random.nextInt(graph.cityCount());
+			pairs[i][1] = random.nextInt(graph.cityCount());
+		}
+		return pairs;
+	}
+
+	static long usedHeap() {
+		Runtime rt = Runtime.getRuntime();
+		for(int i=0;i<3;i++) System.gc();
+		return rt.totalMemory() - rt.freeMemory();
+	}
+
+	static long millis(long nanos) {
+		return nanos / 1000000;
+	}
+
+	static long mb(long bytes) {
+		return bytes / (1024*1024);
+	}
+}
@@ -0,0 +1,11 @@
+/*
+A RouteFinder answers point to point queries on a RouteGraph. Implementations keep the state of the current query in
+the object, so every thread needs its own RouteFinder, while the graph itself is shared.
+*/
+public interface RouteFinder {
+//	Finds the least cost route from source to destination. Returns null if the destination can not be reached.
+	Route findRoute(int source, int destination);
+
+//	Search statistics of the last query, such as the number of expanded cities
+	String statistics();
+}
@@ -0,0 +1,184 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+RouteGraph stores the road network in compressed sparse row (CSR) form. Every city name is interned to an int id once
+while the input is loaded, and the successors of city i are stored at targets[offsets[i]] .. targets[offsets[i+1]-1]
+with the matching distances at the same positions in weights. Eg: for the input
+	Arad Sibiu 140
+	Arad Zerind 75
+the arrays are cityNames = {Arad, Sibiu, Zerind}, offsets = {0, 2, 3, 4}, targets = {1, 2, 0, 0} and
+weights = {140, 75, 140, 75}. The search can then walk the successors of a city without allocating or parsing anything.
+*/
+public class RouteGraph {
+	// Names of the cities by id. Graphs loaded from a RouteGraphSnapshot decode a name from nameBytes on first use.
+	String[] cityNames;
+	private byte[] nameBytes;
+	private int[] nameOffsets;
+	// Open addressing hash table of (city id + 1) by the hashCode of the city name, built on first lookup
+	private int[] nameTable;
+	int[] offsets;
+	int[] targets;
+	int[] weights;
+
+	RouteGraph(String[] cityNames, int[] offsets, int[] targets, int[] weights) {
+		this.cityNames = cityNames;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weights = weights;
+	}
+
+//	Creates a graph whose city names are kept as UTF-8 bytes, where the name of city i is nameBytes[nameOffsets[i]..nameOffsets[i+1])
+	RouteGraph(byte[] nameBytes, int[] nameOffsets, int[] nameTable, int[] offsets, int[] targets, int[] weights) {
+		this(new String[nameOffsets.length-1], offsets, targets, weights);
+		this.nameBytes = nameBytes;
+		this.nameOffsets = nameOffsets;
+		this.nameTable = nameTable;
+	}
+
+	public int cityCount() {
+		return cityNames.length;
+	}
+
+//	Number of directed edges, i.e. twice the number of roads in the input file
+	public int edgeCount() {
+		return targets.length;
+	}
+
+	public String cityName(int city) {
+		String name = cityNames[city];
+		if(name == null) {
+			name = new String(nameBytes, nameOffsets[city], nameOffsets[city+1] - nameOffsets[city], StandardCharsets.UTF_8);
+			cityNames[city] = name;
+		}
+		return name;
+	}
+
+//	Returns the id of the given city, or -1 if the city does not occur in the input
+	public int cityId(String city) {
+		int[] table = nameTable();
+		int mask = table.length - 1;
+		for(int slot=slot(city.hashCode(), mask);table[slot]!=0;slot=(slot+1)&mask) {
+			if(cityName(table[slot]-1).equals(city)) return table[slot] - 1;
+		}
+		return -1;
+	}
+
+	synchronized int[] nameTable() {
+		if(nameTable == null) {
+			int[] table = new int[Integer.highestOneBit(Math.max(8, cityNames.length)) * 4];
+			int mask = table.length - 1;
+			for(int i=0;i<cityNames.length;i++) {
+				int slot = slot(cityName(i).hashCode(), mask);
+				while(table[slot] != 0) slot = (slot + 1) & mask;
+				table[slot] = i + 1;
+			}
+			nameTable = table;
+		}
+		return nameTable;
+	}
+
+	private static int slot(int hash, int mask) {
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	// Parse the input file in the same format as find_route.parseInputFile and build the graph from it
+	public static RouteGraph load(String inputFile) {
+		File input = new File(inputFile);
+		Builder builder = new Builder();
+		BufferedReader br = null;
+		try {
+			br = new BufferedReader(new FileReader(input.getPath()));
+			String line;
+			while((line=br.readLine()) != null && !line.equals("END OF INPUT")) {
+				String[] tokens = line.split(" ");
+				if(tokens.length < 3) continue;
+				builder.addRoad(builder.intern(tokens[0]), builder.intern(tokens[1]), Integer.parseInt(tokens[2]));
+			}
+		} catch (FileNotFoundException e) {
+			System.out.println("Input file not found");
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			try {
+				if(br!=null) br.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		return builder.build();
+	}
+
+	/*
+	The Builder collects the roads as parallel int arrays while the input is read, and build() turns them into CSR form
+	with fromRoads. Every road is stored in both directions, the same way storeInMap is called twice per line in
+	find_route.
+	*/
+	static class Builder {
+		private Map<String, Integer> ids = new HashMap<String, Integer>();
+		private ArrayList<String> names = new ArrayList<String>();
+		private int[] from = new int[16];
+		private int[] to = new int[16];
+		private int[] distance = new int[16];
+		private int roads = 0;
+
+//		Returns the id of the city, assigning the next free id if the city has not been seen yet
+		int intern(String city) {
+			Integer id = ids.get(city);
+			if(id == null) {
+				id = names.size();
+				ids.put(city, id);
+				names.add(city);
+			}
+			return id;
+		}
+
+		void addRoad(int start, int end, int dist) {
+			if(roads == from.length) {
+				int capacity = roads * 2;
+				from = Arrays.copyOf(from, capacity);
+				to = Arrays.copyOf(to, capacity);
+				distance = Arrays.copyOf(distance, capacity);
+			}
+			from[roads] = start;
+			to[roads] = end;
+			distance[roads] = dist;
+			roads++;
+		}
+
+		RouteGraph build() {
+			return fromRoads(names.toArray(new String[names.size()]), from, to, distance, roads);
+		}
+	}
+
+//	Builds the CSR arrays from a list of roads with a counting sort on the start city, storing each road in both directions
+	static RouteGraph fromRoads(String[] cityNames, int[] from, int[] to, int[] distance, int roads) {
+		int n = cityNames.length;
+		int[] offsets = new int[n+1];
+		for(int i=0;i<roads;i++) {
+			offsets[from[i]+1]++;
+			offsets[to[i]+1]++;
+		}
+		for(int i=0;i<n;i++) offsets[i+1] += offsets[i];
+		int[] next = Arrays.copyOf(offsets, n);
+		int[] targets = new int[2*roads];
+		int[] weights = new int[2*roads];
+		for(int i=0;i<roads;i++) {
+			int e = next[from[i]]++;
+			targets[e] = to[i];
+			weights[e] = distance[i];
+			e = next[to[i]]++;
+			targets[e] = from[i];
+			weights[e] = distance[i];
+		}
+		return new RouteGraph(cityNames, offsets, targets, weights);
+	}
+}
@@ -0,0 +1,324 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+RouteGraphLoader builds a RouteGraph from the input file without going through BufferedReader and String.split. The
+file is memory-mapped with FileChannel.map and split into chunks which end right after a newline, and each chunk is
+parsed by a separate thread directly from the mapped bytes. A chunk interns the city names it sees into a local table
+of (offset, length) pairs into the mapped bytes, and the merge copies the bytes of every distinct city once into the
+global city table, so a String is created once per city, never per line.
+
+The heap used grows with the roads and the distinct cities, not with the bytes of the file: the road arrays of a chunk
+are sized by counting its newlines, its name tables start small and grow with the cities it finds, and the merge drops
+every chunk as soon as its roads and names are copied.
+
+Reading stops at the "END OF INPUT" line if there is one, otherwise at the end of the file.
+*/
+public class RouteGraphLoader {
+	private static final byte[] END_OF_INPUT = "END OF INPUT".getBytes(StandardCharsets.US_ASCII);
+	// Chunks are kept well below the 2 GB limit of a single mapping
+	private static final long MAX_CHUNK_SIZE = 256L << 20;
+	private static final long MIN_CHUNK_SIZE = 1L << 20;
+
+	public static RouteGraph load(String inputFile, int threads) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(inputFile, "r");
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			FileChannel channel = file.getChannel();
+			long[] bounds = chunkBounds(channel, threads);
+			List<Future<Chunk>> futures = new ArrayList<Future<Chunk>>();
+			for(int i=0;i+1<bounds.length;i++) {
+				final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, bounds[i], bounds[i+1] - bounds[i]);
+				futures.add(pool.submit(new Callable<Chunk>() {
+					public Chunk call() {
+						return new Chunk(buffer).parse();
+					}
+				}));
+			}
+			List<Chunk> chunks = new ArrayList<Chunk>();
+			int roads = 0;
+			for(Future<Chunk> future:futures) {
+				Chunk chunk = future.get();
+				chunks.add(chunk);
+				roads += chunk.roads;
+				if(chunk.endOfInput) break; // Anything after the END OF INPUT line is ignored
+			}
+			futures.clear(); // Only the list of chunks refers to them now, so that merge can release them one by one
+			return merge(chunks, roads);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		} finally {
+			pool.shutdownNow();
+			file.close();
+		}
+	}
+
+//	Splits the file in chunks of roughly equal size. Every chunk except the last one ends right after a newline.
+	static long[] chunkBounds(FileChannel channel, int threads) throws IOException {
+		long size = channel.size();
+		long chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, size / (threads * 4L) + 1));
+		List<Long> bounds = new ArrayList<Long>();
+		bounds.add(0L);
+		long position = 0;
+		ByteBuffer probe = ByteBuffer.allocate(4096);
+		while(size - position > chunkSize) {
+			long next = position + chunkSize;
+			// Move the boundary forward to the byte after the next newline
+			boolean found = false;
+			while(!found && next < size) {
+				probe.clear();
+				int read = channel.read(probe, next);
+				if(read <= 0) break;
+				for(int i=0;i<read;i++) {
+					if(probe.get(i) == '\n') {
+						next += i + 1;
+						found = true;
+						break;
+					}
+				}
+				if(!found) next += read;
+			}
+			if(next >= size) break;
+			bounds.add(next);
+			position = next;
+		}
+		bounds.add(size);
+		long[] result = new long[bounds.size()];
+		for(int i=0;i<result.length;i++) result[i] = bounds.get(i);
+		return result;
+	}
+
+	/*
+	Maps the local city ids of every chunk to global ids and collects the roads of all chunks in file order. The global
+	city table keeps its own copy of the name bytes, city c being nameBytes[nameStart[c]] to nameBytes[nameStart[c+1]-1],
+	so a chunk is released as soon as it is merged and the String for a city is created only once even if the city
+	occurs in many chunks.
+	*/
+	private static RouteGraph merge(List<Chunk> chunks, int roads) {
+		int localNames = 0;
+		for(Chunk chunk:chunks) localNames += chunk.names;
+		int[] table = new int[Integer.highestOneBit(Math.max(16, localNames)) * 4];
+		int mask = table.length - 1;
+		int[] cityHash = new int[localNames];
+		int[] nameStart = new int[localNames + 1];
+		byte[] nameBytes = new byte[4096];
+		int cities = 0;
+		int[] from = new int[roads];
+		int[] to = new int[roads];
+		int[] distance = new int[roads];
+		int road = 0;
+		for(int k=0;k<chunks.size();k++) {
+			Chunk chunk = chunks.get(k);
+			chunks.set(k, null);
+			int[] globalIds = new int[chunk.names];
+			for(int i=0;i<chunk.names;i++) {
+				int hash = chunk.nameHash[i];
+				int slot = (hash ^ (hash >>> 16)) & mask;
+				while(table[slot] != 0) {
+					int city = table[slot] - 1;
+					if(cityHash[city] == hash && chunk.sameName(i, nameBytes, nameStart[city], nameStart[city+1] - nameStart[city])) break;
+					slot = (slot + 1) & mask;
+				}
+				if(table[slot] == 0) {
+					int end = nameStart[cities] + chunk.nameLength(i);
+					if(end > nameBytes.length) nameBytes = Arrays.copyOf(nameBytes, Math.max(end, nameBytes.length * 2));
+					chunk.copyName(i, nameBytes, nameStart[cities]);
+					cityHash[cities] = hash;
+					nameStart[cities+1] = end;
+					table[slot] = ++cities;
+				}
+				globalIds[i] = table[slot] - 1;
+			}
+			for(int i=0;i<chunk.roads;i++,road++) {
+				from[road] = globalIds[chunk.from[i]];
+				to[road] = globalIds[chunk.to[i]];
+				distance[road] = chunk.distance[i];
+			}
+		}
+		String[] cityNames = new String[cities];
+		for(int i=0;i<cities;i++) cityNames[i] = new String(nameBytes, nameStart[i], nameStart[i+1] - nameStart[i], StandardCharsets.UTF_8);
+		return RouteGraph.fromRoads(cityNames, from, to, distance, roads);
+	}
+
+	// The roads of one chunk of the file, with the cities numbered in the order they first occur in the chunk
+	static class Chunk {
+		private final ByteBuffer buffer;
+		private final int limit;
+		// Local city table: start and length of the name in the buffer, and an open addressing hash table of ids + 1,
+		// which is only needed while the chunk is parsed
+		private int[] nameStart;
+		private int[] nameLength;
+		int[] nameHash;
+		private int[] table;
+		int names = 0;
+		int[] from;
+		int[] to;
+		int[] distance;
+		int roads = 0;
+		boolean endOfInput = false;
+
+		Chunk(ByteBuffer buffer) {
+			this.buffer = buffer;
+			this.limit = buffer.limit();
+			// Every line holds at most one road. The cities repeat across the lines, so their tables start small.
+			int lines = 1;
+			for(int i=0;i<limit;i++) {
+				if(buffer.get(i) == '\n') lines++;
+			}
+			from = new int[lines];
+			to = new int[lines];
+			distance = new int[lines];
+			nameStart = new int[64];
+			nameLength = new int[64];
+			nameHash = new int[64];
+			table = new int[128];
+		}
+
+//		Parses the chunk in a single pass over the bytes, hashing the city names while they are scanned
+		Chunk parse() {
+			int pos = 0;
+			while(pos < limit && !endOfInput) {
+				if(buffer.get(pos) == 'E' && isEndOfInput(pos)) {
+					endOfInput = true;
+					break;
+				}
+				pos = skipSpaces(pos);
+				int startBegin = pos;
+				int startHash = 0;
+				byte b;
+				while(pos < limit && !isSeparator(b = buffer.get(pos))) {
+					startHash = 31*startHash + b;
+					pos++;
+				}
+				int startEnd = pos;
+				pos = skipSpaces(pos);
+				int endBegin = pos;
+				int endHash = 0;
+				while(pos < limit && !isSeparator(b = buffer.get(pos))) {
+					endHash = 31*endHash + b;
+					pos++;
+				}
+				int endEnd = pos;
+				pos = skipSpaces(pos);
+				// A negative distance is read like Integer.parseInt in RouteGraph.load reads it
+				boolean negative = pos < limit && buffer.get(pos) == '-';
+				if(negative) pos++;
+				int dist = 0;
+				int digits = 0;
+				while(pos < limit && (b = buffer.get(pos)) >= '0' && b <= '9') {
+					dist = dist * 10 + (b - '0');
+					digits++;
+					pos++;
+				}
+				if(negative) dist = -dist;
+				// Skip the rest of the line, including anything after the distance
+				while(pos < limit && buffer.get(pos++) != '\n');
+				if(startBegin == startEnd || endBegin == endEnd || digits == 0) continue; // Not a road entry
+				addRoad(intern(startBegin, startEnd - startBegin, startHash), intern(endBegin, endEnd - endBegin, endHash), dist);
+			}
+			table = null;
+			return this;
+		}
+
+//		Checks if the line starting at pos is the END OF INPUT line
+		private boolean isEndOfInput(int pos) {
+			int end = pos + END_OF_INPUT.length;
+			if(end > limit) return false;
+			for(int i=0;i<END_OF_INPUT.length;i++) {
+				if(buffer.get(pos+i) != END_OF_INPUT[i]) return false;
+			}
+			return end == limit || buffer.get(end) == '\n' || buffer.get(end) == '\r';
+		}
+
+		private static boolean isSeparator(byte b) {
+			return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+		}
+
+		private int skipSpaces(int pos) {
+			byte b;
+			while(pos < limit && ((b = buffer.get(pos)) == ' ' || b == '\t')) pos++;
+			return pos;
+		}
+
+		private int intern(int start, int length, int hash) {
+			int mask = table.length - 1;
+			int slot = (hash ^ (hash >>> 16)) & mask;
+			while(table[slot] != 0) {
+				int id = table[slot] - 1;
+				if(nameHash[id] == hash && sameNameIn(start, length, this, id)) return id;
+				slot = (slot + 1) & mask;
+			}
+			if(names == nameStart.length) {
+				nameStart = Arrays.copyOf(nameStart, names * 2);
+				nameLength = Arrays.copyOf(nameLength, names * 2);
+				nameHash = Arrays.copyOf(nameHash, names * 2);
+			}
+			nameStart[names] = start;
+			nameLength[names] = length;
+			nameHash[names] = hash;
+			table[slot] = ++names;
+			if(names * 2 > table.length) rehash();
+			return names - 1;
+		}
+
+//		Compares the name at start in this chunk with the name of city id in the owner chunk
+		private boolean sameNameIn(int start, int length, Chunk owner, int id) {
+			if(owner.nameLength[id] != length) return false;
+			int other = owner.nameStart[id];
+			for(int i=0;i<length;i++) {
+				if(owner.buffer.get(other+i) != buffer.get(start+i)) return false;
+			}
+			return true;
+		}
+
+//		Compares the name of a local city with the length bytes at start in bytes
+		boolean sameName(int id, byte[] bytes, int start, int length) {
+			if(nameLength[id] != length) return false;
+			int name = nameStart[id];
+			for(int i=0;i<length;i++) {
+				if(buffer.get(name+i) != bytes[start+i]) return false;
+			}
+			return true;
+		}
+
+		int nameLength(int id) {
+			return nameLength[id];
+		}
+
+		void copyName(int id, byte[] bytes, int start) {
+			for(int i=0;i<nameLength[id];i++) bytes[start+i] = buffer.get(nameStart[id]+i);
+		}
+
+		private void rehash() {
+			table = new int[table.length * 2];
+			int mask = table.length - 1;
+			for(int id=0;id<names;id++) {
+				int slot = (nameHash[id] ^ (nameHash[id] >>> 16)) & mask;
+				while(table[slot] != 0) slot = (slot + 1) & mask;
+				table[slot] = id + 1;
+			}
+		}
+
+		private void addRoad(int start, int end, int dist) {
+			from[roads] = start;
+			to[roads] = end;
+			distance[roads] = dist;
+			roads++;
+		}
+	}
+}
@@ -0,0 +1,147 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/*
+RouteGraphSnapshot persists a parsed RouteGraph in a binary file, so that later runs on the same input can map the
+file instead of parsing the text again. The snapshot stores the size and last modified time of the input file it was
+built from, and is only used if both still match. Layout, all values little endian:
+	header: magic, version, input size (long), input last modified (long), city count n, edge count m, name bytes
+	offsets: n+1 ints, targets: m ints, weights: m ints
+	names: n+1 ints with the start of every city name, followed by the UTF-8 bytes of all names
+	name table: table size t, then t ints of the hash table used by RouteGraph.cityId
+The names are decoded into Strings only when they are printed, and the name table is used as it is, so loading costs
+little more than copying the arrays out of the mapped file.
+
+Every writer writes to a temporary file of its own next to the snapshot and then moves it over the snapshot in one
+step, so runs started at the same time never write into the same file and a reader maps either a complete old or a
+complete new snapshot.
+*/
+public class RouteGraphSnapshot {
+	private static final int MAGIC = 0x52544753; // "RTGS"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4 + 4 + 4;
+
+//	Default snapshot location for an input file
+	public static String snapshotFile(String inputFile) {
+		return inputFile + ".graph";
+	}
+
+//	Maps the snapshot and returns the graph stored in it, or null if there is no snapshot or it does not match the input
+	public static RouteGraph load(String snapshotFile, String inputFile) throws IOException {
+		File snapshot = new File(snapshotFile);
+		File input = new File(inputFile);
+		if(!snapshot.isFile() || snapshot.length() < HEADER_BYTES) return null;
+		RandomAccessFile file = new RandomAccessFile(snapshot, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			if(header.getInt() != MAGIC || header.getInt() != VERSION) return null;
+			if(header.getLong() != input.length() || header.getLong() != input.lastModified()) return null;
+			int n = header.getInt();
+			int m = header.getInt();
+			int nameBytes = header.getInt();
+			long tablePosition = HEADER_BYTES + 4L * (n + 1) * 2 + 8L * m + nameBytes;
+			if(channel.size() < tablePosition + 4) return null;
+			int tableSize = readInts(channel, tablePosition, 1)[0];
+			if(channel.size() != tablePosition + 4 + 4L * tableSize) return null;
+			long position = HEADER_BYTES;
+			int[] offsets = readInts(channel, position, n + 1);
+			position += 4L * (n + 1);
+			int[] targets = readInts(channel, position, m);
+			position += 4L * m;
+			int[] weights = readInts(channel, position, m);
+			position += 4L * m;
+			int[] nameOffsets = readInts(channel, position, n + 1);
+			position += 4L * (n + 1);
+			byte[] names = new byte[nameBytes];
+			channel.map(FileChannel.MapMode.READ_ONLY, position, nameBytes).get(names);
+			int[] nameTable = readInts(channel, tablePosition + 4, tableSize);
+			return new RouteGraph(names, nameOffsets, nameTable, offsets, targets, weights);
+		} finally {
+			file.close();
+		}
+	}
+
+//	Writes the graph to the snapshot file, recording the size and last modified time of the input it was loaded from
+	public static void write(RouteGraph graph, String snapshotFile, String inputFile) throws IOException {
+		File input = new File(inputFile);
+		int n = graph.cityCount();
+		int m = graph.edgeCount();
+		byte[][] names = new byte[n][];
+		int[] nameOffsets = new int[n+1];
+		for(int i=0;i<n;i++) {
+			names[i] = graph.cityName(i).getBytes(StandardCharsets.UTF_8);
+			nameOffsets[i+1] = nameOffsets[i] + names[i].length;
+		}
+		File temp = createTemp(snapshotFile);
+		boolean published = false;
+		try {
+			RandomAccessFile file = new RandomAccessFile(temp, "rw");
+			try {
+				FileChannel channel = file.getChannel();
+				ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+				buffer.putInt(MAGIC).putInt(VERSION).putLong(input.length()).putLong(input.lastModified());
+				buffer.putInt(n).putInt(m).putInt(nameOffsets[n]);
+				writeInts(channel, buffer, graph.offsets);
+				writeInts(channel, buffer, graph.targets);
+				writeInts(channel, buffer, graph.weights);
+				writeInts(channel, buffer, nameOffsets);
+				for(byte[] name:names) {
+					if(buffer.remaining() < name.length) flush(channel, buffer);
+					if(name.length > buffer.capacity()) channel.write(ByteBuffer.wrap(name));
+					else buffer.put(name);
+				}
+				int[] nameTable = graph.nameTable();
+				if(buffer.remaining() < 4) flush(channel, buffer);
+				buffer.putInt(nameTable.length);
+				writeInts(channel, buffer, nameTable);
+				flush(channel, buffer);
+			} finally {
+				file.close();
+			}
+			publish(temp, snapshotFile);
+			published = true;
+		} finally {
+			if(!published) temp.delete();
+		}
+	}
+
+//	Creates an empty temporary file, unique to this run, in the directory of the target file
+	static File createTemp(String target) throws IOException {
+		File file = new File(target).getAbsoluteFile();
+		return File.createTempFile(file.getName() + ".tmp", "", file.getParentFile());
+	}
+
+//	Replaces the target with the finished temporary file in one step
+	static void publish(File temp, String target) throws IOException {
+		Files.move(temp.toPath(), new File(target).toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private static int[] readInts(FileChannel channel, long position, int count) throws IOException {
+		int[] values = new int[count];
+		if(count > 0) {
+			channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * count).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(values);
+		}
+		return values;
+	}
+
+	private static void writeInts(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+		for(int value:values) {
+			if(buffer.remaining() < 4) flush(channel, buffer);
+			buffer.putInt(value);
+		}
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) channel.write(buffer);
+		buffer.clear();
+	}
+}
@@ -0,0 +1,149 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+RouteMatrix computes the distance from each of N sources to each of M targets. Every source needs one uniform cost
+search, which stops as soon as all targets have been expanded. The sources are split over a fork/join pool; the graph is
+shared and every worker thread keeps its own RouteSearch, so the searches never wait for each other. The distances are
+stored row by row in one int array, distances[i*M + j] for source i and target j, UNREACHABLE if there is no route.
+
+The matrix is written either as CSV, with the target names in the first row and the source name in front of every row,
+or as a dense binary file, little endian: magic, version, N, M, then the N*M distances row by row, with -1 for
+unreachable targets. The rows and columns of the binary file are in the order of the source and target lists.
+*/
+public class RouteMatrix {
+	private static final int MAGIC = 0x52544d58; // "RTMX"
+	private static final int VERSION = 1;
+	// Ranges of at most this many sources are searched by one task instead of being split further
+	private static final int SOURCES_PER_TASK = 4;
+	final RouteGraph graph;
+	final int[] sources;
+	final int[] targets;
+	final int[] distances;
+
+	private RouteMatrix(RouteGraph graph, int[] sources, int[] targets) {
+		this.graph = graph;
+		this.sources = sources;
+		this.targets = targets;
+		this.distances = new int[sources.length * targets.length];
+	}
+
+	public int distance(int source, int target) {
+		return distances[source * targets.length + target];
+	}
+
+	public static RouteMatrix compute(final RouteGraph graph, int[] sources, int[] targets, int threads) {
+		RouteMatrix matrix = new RouteMatrix(graph, sources, targets);
+		ThreadLocal<RouteSearch> searches = new ThreadLocal<RouteSearch>() {
+			protected RouteSearch initialValue() {
+				return new RouteSearch(graph);
+			}
+		};
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			pool.invoke(matrix.new Rows(searches, 0, sources.length));
+		} finally {
+			pool.shutdown();
+		}
+		return matrix;
+	}
+
+	// Fills the rows from start to end, splitting the range in halves until it is small enough
+	private class Rows extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final ThreadLocal<RouteSearch> searches;
+		private final int start;
+		private final int end;
+
+		Rows(ThreadLocal<RouteSearch> searches, int start, int end) {
+			this.searches = searches;
+			this.start = start;
+			this.end = end;
+		}
+
+		protected void compute() {
+			if(end - start > SOURCES_PER_TASK) {
+				int middle = (start + end) >>> 1;
+				invokeAll(new Rows(searches, start, middle), new Rows(searches, middle, end));
+				return;
+			}
+			RouteSearch search = searches.get();
+			for(int i=start;i<end;i++) {
+				search.expandFrom(sources[i], targets);
+				for(int j=0;j<targets.length;j++) distances[i*targets.length + j] = search.distance(targets[j]);
+			}
+		}
+	}
+
+//	Reads one city name per line, ending at the END OF INPUT line or at the end of the file. Unknown cities get id -1.
+	public static int[] readCities(String file, RouteGraph graph) throws IOException {
+		List<Integer> cities = new ArrayList<Integer>();
+		BufferedReader br = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while((line=br.readLine()) != null && !line.equals("END OF INPUT")) {
+				if(!line.trim().isEmpty()) cities.add(graph.cityId(line.trim()));
+			}
+		} finally {
+			br.close();
+		}
+		int[] ids = new int[cities.size()];
+		for(int i=0;i<ids.length;i++) ids[i] = cities.get(i);
+		return ids;
+	}
+
+	public void writeCsv(PrintStream out) {
+		StringBuilder sb = new StringBuilder();
+		for(int target:targets) sb.append(',').append(name(target));
+		out.println(sb);
+		for(int i=0;i<sources.length;i++) {
+			sb.setLength(0);
+			sb.append(name(sources[i]));
+			for(int j=0;j<targets.length;j++) {
+				int d = distances[i*targets.length + j];
+				sb.append(',');
+				if(d == ShortestPathTree.UNREACHABLE) sb.append("infinity");
+				else sb.append(d);
+			}
+			out.println(sb);
+		}
+		out.flush();
+	}
+
+	public void writeBinary(String file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(0);
+			FileChannel channel = raf.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(sources.length).putInt(targets.length);
+			for(int d:distances) {
+				if(buffer.remaining() < 4) flush(channel, buffer);
+				buffer.putInt(d == ShortestPathTree.UNREACHABLE ? -1 : d);
+			}
+			flush(channel, buffer);
+		} finally {
+			raf.close();
+		}
+	}
+
+	private String name(int city) {
+		return city < 0 ? "unknown" : graph.cityName(city);
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) channel.write(buffer);
+		buffer.clear();
+	}
+}
@@ -0,0 +1,294 @@
+import java.util.Arrays;
+
+/*
+RouteSearch runs uniform cost search over a RouteGraph. All the search state is kept in int arrays indexed by city id,
+and the fringe is a binary heap of longs where each entry packs (pathCost << 32 | city), so no object is created per
+expanded edge. Entries are not removed when a cheaper path to a city is found; instead the stale entry is skipped when
+it is polled, which is the same behaviour as the visited set in find_route.findRoute.
+
+With indexedFringe set, the fringe is an IndexedMinHeap instead: a city is in the fringe at most once, its key is
+lowered in place when a cheaper path is found and relaxations that do not improve its pathCost are skipped.
+
+A RouteSearch object can be reused for any number of queries on the same graph. Instead of clearing the arrays before
+every query, each query gets a new round number and an array entry is only valid if its stamp equals the current round.
+*/
+public class RouteSearch implements RouteFinder {
+	final RouteGraph graph;
+	// Cumulative path cost and parent city of every city reached in the current round
+	final int[] pathCost;
+	final int[] parent;
+	// reached[c] == round if c has been added to the fringe, expanded[c] == round if c has been expanded
+	private final int[] reached;
+	private final int[] expanded;
+	private int round = 0;
+	private long[] fringe = new long[64];
+	private int fringeSize = 0;
+	// targetMark[c] == round if c is one of the targets of expandFrom, allocated on first use
+	private int[] targetMark;
+	// Heap used by the indexed fringe and by A*, allocated on first use
+	private IndexedMinHeap heap;
+	private boolean indexedFringe = false;
+	// If set, findRoute(source, destination) runs A* with this heuristic
+	private Heuristic heuristic;
+	// Number of cities expanded, fringe entries polled and the largest fringe size seen by the last query
+	int expandedCount = 0;
+	int pollCount = 0;
+	int maxFringeSize = 0;
+
+	public RouteSearch(RouteGraph graph) {
+		this.graph = graph;
+		int n = graph.cityCount();
+		pathCost = new int[n];
+		parent = new int[n];
+		reached = new int[n];
+		expanded = new int[n];
+	}
+
+//	Switches the fringe from the packed lazy heap to an IndexedMinHeap with decrease-key
+	public RouteSearch useIndexedFringe() {
+		indexedFringe = true;
+		return this;
+	}
+
+//	Makes findRoute(source, destination) run A* with the given heuristic
+	public RouteSearch useHeuristic(Heuristic heuristic) {
+		this.heuristic = heuristic;
+		return this;
+	}
+
+	public String statistics() {
+		return "expanded: " + expandedCount + ", polled: " + pollCount + ", max fringe: " + maxFringeSize;
+	}
+
+	private IndexedMinHeap heap() {
+		if(heap == null) heap = new IndexedMinHeap(graph.cityCount());
+		return heap;
+	}
+
+//	Finds the least cost route from source to destination. Returns null if the destination can not be reached.
+	public Route findRoute(int source, int destination) {
+		if(heuristic != null) return findRoute(source, destination, heuristic);
+		if(source < 0) return null;
+		nextRound();
+		expandedCount = 0;
+		pollCount = 0;
+		maxFringeSize = 1;
+		reach(source, -1, 0);
+		if(indexedFringe) return findRouteIndexed(source, destination);
+		fringeSize = 0;
+		push(source, 0);
+		while(fringeSize > 0) {
+			pollCount++;
+			long top = pop();
+			int city = (int) top;
+			int cost = (int) (top >>> 32);
+			if(expanded[city] == round || cost > pathCost[city]) continue; // Stale entry for a city reached again at a lower cost
+			expanded[city] = round;
+			expandedCount++;
+			if(city == destination) return routeTo(destination);
+			for(int e=graph.offsets[city];e<graph.offsets[city+1];e++) {
+				int child = graph.targets[e];
+				int childCost = cost + graph.weights[e];
+				if(expanded[child] == round) continue;
+				if(reached[child] != round || childCost < pathCost[child]) {
+					reach(child, city, childCost);
+					push(child, childCost);
+				}
+			}
+			if(fringeSize > maxFringeSize) maxFringeSize = fringeSize;
+		}
+		return null;
+	}
+
+	private Route findRouteIndexed(int source, int destination) {
+		IndexedMinHeap heap = heap();
+		heap.clear();
+		heap.insert(source, 0);
+		while(!heap.isEmpty()) {
+			pollCount++;
+			int city = heap.poll();
+			int cost = pathCost[city];
+			expanded[city] = round;
+			expandedCount++;
+			if(city == destination) return routeTo(destination);
+			for(int e=graph.offsets[city];e<graph.offsets[city+1];e++) {
+				int child = graph.targets[e];
+				if(expanded[child] == round) continue;
+				int childCost = cost + graph.weights[e];
+				if(reached[child] != round) {
+					reach(child, city, childCost);
+					heap.insert(child, childCost);
+				} else if(childCost < pathCost[child]) {
+					reach(child, city, childCost);
+					heap.decreaseKey(child, childCost);
+				}
+			}
+			if(heap.size() > maxFringeSize) maxFringeSize = heap.size();
+		}
+		return null;
+	}
+
+//	Runs uniform cost search from the source over the whole graph and returns the distance to every city, or UNREACHABLE
+	public int[] distancesFrom(int source) {
+		return shortestPathTree(source).distances;
+	}
+
+//	Runs uniform cost search from the source over the whole graph and returns the distance and parent of every city
+	public ShortestPathTree shortestPathTree(int source) {
+		expandFrom(source, null);
+		int n = graph.cityCount();
+		int[] distances = new int[n];
+		int[] parents = new int[n];
+		for(int c=0;c<n;c++) {
+			distances[c] = distance(c);
+			parents[c] = expanded[c] == round ? parent[c] : -1;
+		}
+		return new ShortestPathTree(graph, source, distances, parents);
+	}
+
+	/*
+	Runs uniform cost search from the source until every city in targets has been expanded, or over the whole graph if
+	targets is null. Afterwards distance(city) gives the distance of every target.
+	*/
+	public void expandFrom(int source, int[] targets) {
+		nextRound();
+		expandedCount = 0;
+		if(source < 0) return;
+		int targetsLeft = -1;
+		if(targets != null) {
+			if(targetMark == null) targetMark = new int[graph.cityCount()];
+			targetsLeft = 0;
+			for(int t:targets) {
+				if(t >= 0 && targetMark[t] != round) {
+					targetMark[t] = round;
+					targetsLeft++;
+				}
+			}
+			if(targetsLeft == 0) return;
+		}
+		reach(source, -1, 0);
+		fringeSize = 0;
+		push(source, 0);
+		while(fringeSize > 0) {
+			long top = pop();
+			int city = (int) top;
+			int cost = (int) (top >>> 32);
+			if(expanded[city] == round || cost > pathCost[city]) continue;
+			expanded[city] = round;
+			expandedCount++;
+			if(targetsLeft > 0 && targetMark[city] == round && --targetsLeft == 0) return;
+			for(int e=graph.offsets[city];e<graph.offsets[city+1];e++) {
+				int child = graph.targets[e];
+				int childCost = cost + graph.weights[e];
+				if(expanded[child] == round) continue;
+				if(reached[child] != round || childCost < pathCost[child]) {
+					reach(child, city, childCost);
+					push(child, childCost);
+				}
+			}
+		}
+	}
+
+//	Distance of a city expanded by the last expandFrom, or UNREACHABLE
+	public int distance(int city) {
+		return city >= 0 && expanded[city] == round ? pathCost[city] : ShortestPathTree.UNREACHABLE;
+	}
+
+	/*
+	A* search from source to destination. The fringe is ordered by pathCost plus the heuristic estimate of the remaining
+	distance. A city which is reached again at a lower cost after it has been expanded goes back into the fringe, so the
+	route is the least cost route for any heuristic which never overestimates, not only for consistent ones.
+	*/
+	public Route findRoute(int source, int destination, Heuristic heuristic) {
+		if(source < 0 || destination < 0) return null;
+		nextRound();
+		expandedCount = 0;
+		pollCount = 0;
+		maxFringeSize = 1;
+		reach(source, -1, 0);
+		IndexedMinHeap heap = heap();
+		heap.clear();
+		heap.insert(source, heuristic.estimate(source, destination));
+		while(!heap.isEmpty()) {
+			pollCount++;
+			int city = heap.poll();
+			expanded[city] = round;
+			expandedCount++;
+			if(city == destination) return routeTo(destination);
+			int cost = pathCost[city];
+			for(int e=graph.offsets[city];e<graph.offsets[city+1];e++) {
+				int child = graph.targets[e];
+				int childCost = cost + graph.weights[e];
+				if(reached[child] == round && childCost >= pathCost[child]) continue;
+				reach(child, city, childCost);
+				int estimate = childCost + heuristic.estimate(child, destination);
+				if(heap.contains(child)) heap.decreaseKey(child, estimate);
+				else {
+					expanded[child] = 0; // Reopen the city if it has already been expanded
+					heap.insert(child, estimate);
+				}
+			}
+			if(heap.size() > maxFringeSize) maxFringeSize = heap.size();
+		}
+		return null;
+	}
+
+//	Back traces the parents of the destination until the source is reached
+	Route routeTo(int destination) {
+		int length = 0;
+		for(int c=destination;c!=-1;c=parent[c]) length++;
+		int[] cities = new int[length];
+		int[] costs = new int[length];
+		for(int c=destination;c!=-1;c=parent[c]) {
+			length--;
+			cities[length] = c;
+			costs[length] = pathCost[c];
+		}
+		return new Route(cities, costs);
+	}
+
+	void nextRound() {
+		round++;
+		if(round == Integer.MAX_VALUE) {
+			Arrays.fill(reached, 0);
+			Arrays.fill(expanded, 0);
+			if(targetMark != null) Arrays.fill(targetMark, 0);
+			round = 1;
+		}
+	}
+
+	private void reach(int city, int from, int cost) {
+		reached[city] = round;
+		parent[city] = from;
+		pathCost[city] = cost;
+	}
+
+	private void push(int city, int cost) {
+		if(fringeSize == fringe.length) fringe = Arrays.copyOf(fringe, fringeSize * 2);
+		long entry = ((long) cost << 32) | city;
+		int i = fringeSize++;
+		while(i > 0) {
+			int p = (i - 1) >>> 1;
+			if(fringe[p] <= entry) break;
+			fringe[i] = fringe[p];
+			i = p;
+		}
+		fringe[i] = entry;
+	}
+
+	private long pop() {
+		long top = fringe[0];
+		long last = fringe[--fringeSize];
+		int i = 0;
+		int half = fringeSize >>> 1;
+		while(i < half) {
+			int child = 2*i + 1;
+			if(child + 1 < fringeSize && fringe[child+1] < fringe[child]) child++;
+			if(last <= fringe[child]) break;
+			fringe[i] = fringe[child];
+			i = child;
+		}
+		if(fringeSize > 0) fringe[i] = last;
+		return top;
+	}
+}
@@ -0,0 +1,165 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+RouteServer answers a stream of "source destination" queries against one RouteGraph which is loaded only once. The
+graph is never modified after loading, so all worker threads share it, and every worker creates its own RouteFinder
+with the per-query arrays. The answer to every query is the same text find_route prints for a single query.
+
+Queries can be read from stdin or from a file, or from clients connecting to a socket on the loopback interface, where
+every connection has a thread of its own which only reads the queries. Either way every query is answered by one of the
+workers and the answers are printed in the order of the queries. Throughput and the p50/p99 latency of the queries are
+reported on stderr.
+*/
+public class RouteServer {
+	private final RouteGraph graph;
+	private final int threads;
+	private final ThreadLocal<RouteFinder> finders;
+	private final LatencyHistogram latencies = new LatencyHistogram();
+	private long startNanos;
+
+	public RouteServer(RouteGraph graph, final Callable<RouteFinder> finderFactory, int threads) {
+		this.graph = graph;
+		this.threads = threads;
+		this.finders = new ThreadLocal<RouteFinder>() {
+			protected RouteFinder initialValue() {
+				try {
+					return finderFactory.call();
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+	}
+
+//	Answers a single query line of the form "source destination" with the RouteFinder of the current thread
+	public String answer(String query) {
+		long start = System.nanoTime();
+		String[] cities = query.trim().split("\\s+");
+		String output;
+		if(cities.length != 2) output = "Enter valid input arguments";
+		else {
+			Route route = finders.get().findRoute(graph.cityId(cities[0]), graph.cityId(cities[1]));
+			output = find_route.formatOutput(graph, route);
+		}
+		latencies.record(System.nanoTime() - start);
+		return output;
+	}
+
+//	Reads the queries from the reader and prints the answers in the same order
+	public void serve(Reader queries, PrintStream out) throws IOException {
+		startNanos = System.nanoTime();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			answerAll(new BufferedReader(queries), out, pool);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/*
+	Submits every query of the reader to the pool and prints the answers in the order of the queries. At most a few
+	queries per thread are in flight at any time, so the memory used does not grow with the number of queries. When no
+	more query is waiting to be read, the answers in flight are printed and flushed, so a client which waits for the
+	answers before sending more queries gets them, and pipelined queries are answered in one write.
+	*/
+	private void answerAll(BufferedReader br, PrintStream out, ExecutorService pool) throws IOException {
+		Deque<Future<String>> pending = new ArrayDeque<Future<String>>();
+		try {
+			String line;
+			while((line=br.readLine()) != null) {
+				if(line.trim().isEmpty()) continue;
+				final String query = line;
+				pending.add(pool.submit(new Callable<String>() {
+					public String call() {
+						return answer(query);
+					}
+				}));
+				if(pending.size() >= threads * 16) out.println(pending.poll().get());
+				if(!br.ready()) {
+					while(!pending.isEmpty()) out.println(pending.poll().get());
+					out.flush();
+				}
+			}
+			while(!pending.isEmpty()) out.println(pending.poll().get());
+			out.flush();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		}
+	}
+
+//	Serves the queries from a file, or from stdin if the file name is "-"
+	public void serve(String queryFile, PrintStream out) throws IOException {
+		Reader reader = queryFile.equals("-") ? new InputStreamReader(System.in) : new FileReader(queryFile);
+		try {
+			serve(reader, out);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/*
+	Accepts connections on the loopback interface until the process is stopped. Each client gets a thread which reads its
+	queries and submits them to the workers shared by all the clients, so an idle connection does not hold a worker.
+	*/
+	public void listen(int port) throws IOException {
+		startNanos = System.nanoTime();
+		final ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		System.err.println("Listening for route queries on " + server.getLocalSocketAddress());
+		try {
+			while(true) {
+				final Socket client = server.accept();
+				Thread reader = new Thread(new Runnable() {
+					public void run() {
+						serveClient(client, pool);
+					}
+				}, "route client " + client.getRemoteSocketAddress());
+				reader.setDaemon(true);
+				reader.start();
+			}
+		} finally {
+			server.close();
+			pool.shutdownNow();
+		}
+	}
+
+	private void serveClient(Socket client, ExecutorService pool) {
+		try {
+			BufferedReader br = new BufferedReader(new InputStreamReader(client.getInputStream()));
+			answerAll(br, new PrintStream(new BufferedOutputStream(client.getOutputStream())), pool);
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			try {
+				client.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			printStats(System.err);
+		}
+	}
+
+//	Prints the number of queries answered so far, the throughput since the server started and the p50/p99 latency
+	public void printStats(PrintStream out) {
+		String summary = latencies.summary("queries", startNanos);
+		if(summary != null) out.println(summary);
+	}
+}
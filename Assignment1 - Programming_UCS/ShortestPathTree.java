@@ -0,0 +1,51 @@
+import java.io.PrintStream;
+
+/*
+ShortestPathTree is the result of a uniform cost search from one source which is not stopped at a destination: the
+distance from the source to every city and the parent of every city on its least cost route. The route to any city
+can be read from the tree without searching again.
+*/
+public class ShortestPathTree {
+	// Distance of a city which can not be reached from the source
+	static final int UNREACHABLE = Integer.MAX_VALUE;
+	final RouteGraph graph;
+	final int source;
+	final int[] distances;
+	// Parent of every city on its route from the source, -1 for the source and for unreachable cities
+	final int[] parents;
+
+	ShortestPathTree(RouteGraph graph, int source, int[] distances, int[] parents) {
+		this.graph = graph;
+		this.source = source;
+		this.distances = distances;
+		this.parents = parents;
+	}
+
+//	Back traces the parents of the destination, returns null if it can not be reached from the source
+	public Route routeTo(int destination) {
+		if(destination < 0 || distances[destination] == UNREACHABLE) return null;
+		int length = 0;
+		for(int c=destination;c!=-1;c=parents[c]) length++;
+		int[] cities = new int[length];
+		int[] costs = new int[length];
+		for(int c=destination;c!=-1;c=parents[c]) {
+			length--;
+			cities[length] = c;
+			costs[length] = distances[c];
+		}
+		return new Route(cities, costs);
+	}
+
+//	Prints "city,distance,parent" for every city, with infinity and no parent for the cities that can not be reached
+	public void writeCsv(PrintStream out) {
+		out.println("city,distance,parent");
+		for(int c=0;c<distances.length;c++) {
+			out.print(graph.cityName(c));
+			out.print(',');
+			out.print(distances[c] == UNREACHABLE ? "infinity" : Integer.toString(distances[c]));
+			out.print(',');
+			out.println(parents[c] == -1 ? "" : graph.cityName(parents[c]));
+		}
+		out.flush();
+	}
+}
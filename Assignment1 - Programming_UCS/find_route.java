@@ -1,8 +1,11 @@
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -12,6 +15,7 @@ import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.Callable;
 
 // A Node object stores the current city name, its parents and the cumulative path cost to reach the city
 class Node{
@@ -51,9 +55,353 @@ public class find_route {
 	*/
 	Map<String, Object[]> routeMap = new HashMap<String, Object[]>();
 	
+	/*
+	Instead of the origin and destination city, "--serve" loads the graph once and answers a stream of queries, one
+	"origin destination" pair per line, see RouteServer:
+	--queries file|-: read the queries from the file or from stdin (default)
+	--port n: accept queries from clients connecting to the port on localhost
+	
+	"--build-landmarks k" instead of the origin and destination city chooses k landmarks, computes the distances from
+	every landmark to every city and writes them to the --landmark-index file, see LandmarkIndex. Likewise
+	"--build-hierarchy" contracts the graph and writes the shortcuts to the --hierarchy file, see ContractionHierarchy.
+	
+	"--tree city" prints the distance and parent of every city on its least cost route from the city as CSV, see
+	ShortestPathTree, and "--matrix file" computes the distances between many cities, see RouteMatrix:
+	--matrix file: the source cities of the matrix, one name per line
+	--targets file: the target cities, one name per line, by default the same as the sources
+	--format csv|binary: write the matrix as CSV (default) or as a binary file of ints
+	--output file: write the tree or the matrix to the file instead of stdout, required for the binary format
+	
+	Optional arguments given after the destination city, as "--name value" pairs or "--name" flags:
+	--graph map|csr: search the HashMap based successorMap (default) or the compact RouteGraph
+	--fringe queue|lazy|indexed: PriorityQueue of Node objects on successorMap (default), or on the RouteGraph a heap
+	with stale entries skipped when polled (lazy) or an IndexedMinHeap with decrease-key (indexed)
+	--loader text|mmap: read the input for the RouteGraph line by line (default) or with RouteGraphLoader, which parses
+	memory-mapped chunks of the file in parallel; implies --graph csr
+	--snapshot [file]: keep a binary snapshot of the RouteGraph (by default next to the input file) which is written on
+	the first run and memory-mapped by later runs as long as the input file has not changed; implies --graph csr
+	--search ucs|astar|bidirectional|alt|ch: uniform cost search (default), A* on the RouteGraph with the estimates
+	from --heuristic, a BidirectionalSearch from both the origin and the destination on the RouteGraph, A* with the
+	landmark bounds of the --landmark-index, which is built with 16 landmarks if it is missing or out of date, or a
+	ContractionSearch on the --hierarchy, which is likewise built if it is missing or out of date
+	--landmark-index file: the landmark index, by default next to the input file
+	--hierarchy file: the contraction hierarchy, by default next to the input file
+	--heuristic file: "city value" lines with the estimated distance to the destination, or "city x y" lines with
+	coordinates for a straight line distance estimate, see Heuristic.load
+	--threads n: number of threads used by the parallel loader, defaults to the number of available processors
+	--stats: print load time, search time and heap usage after the output
+	*/
+	Map<String, String> options = new HashMap<String, String>();
+	
+	// Number of Nodes expanded by the last searchSuccessorMap call
+	int expandedCount = 0;
+	
+	// Input file of the current run, which the snapshot and the landmark index are checked against
+	String inputFile;
+	
+	// Destination given to finderFactory when the finders answer queries to any destination
+	static final int ANY_DESTINATION = -2;
+	
+	// Number of landmarks used when --search alt has to build a missing index
+	static final int DEFAULT_LANDMARKS = 16;
+	
 	private void findRoute(String inputFile, String source, String destination) {
 		// Parse the input file and store the given information in successor map initialized above
+		long start = System.nanoTime();
 		parseInputFile(inputFile);
+		long loaded = System.nanoTime();
+		searchSuccessorMap(source, destination);
+		long searched = System.nanoTime();
+		// After exiting from the search, print the output using the information stored in routeMap
+		printOutput(destination);
+		if(options.containsKey("stats")) {
+			printStats(loaded - start, searched - loaded);
+			System.out.println("expanded: " + expandedCount);
+		}
+	}
+	
+	// Same as findRoute, but the input is loaded into a RouteGraph and the search runs on the int ids of the cities
+	private void findRouteOnGraph(String inputFile, String source, String destination) {
+		long start = System.nanoTime();
+		RouteGraph graph = loadGraph(inputFile);
+		if(graph == null) return;
+		long loaded = System.nanoTime();
+		Callable<RouteFinder> factory = finderFactory(graph, graph.cityId(destination));
+		if(factory == null) return;
+		RouteFinder finder = createFinder(factory);
+		Route route = finder.findRoute(graph.cityId(source), graph.cityId(destination));
+		long searched = System.nanoTime();
+		printOutput(graph, route);
+		if(options.containsKey("stats")) {
+			printStats(loaded - start, searched - loaded);
+			System.out.println(finder.statistics());
+		}
+	}
+	
+	/*
+	Returns a factory for the RouteFinder selected by the --search and --fringe options. Everything the finders can
+	share, such as the heuristic, is loaded once here. destination is the id of the destination of the single query, or
+	ANY_DESTINATION if the finders answer queries to any destination. Returns null if that fails.
+	*/
+	Callable<RouteFinder> finderFactory(final RouteGraph graph, int destination) {
+		final String searchMode = options.containsKey("search") ? options.get("search") : "ucs";
+		final boolean indexed = "indexed".equals(options.get("fringe"));
+		final Heuristic heuristic;
+		if(searchMode.equals("astar")) heuristic = loadHeuristic(graph, destination);
+		else if(searchMode.equals("alt")) heuristic = loadLandmarks(graph);
+		else heuristic = null;
+		if((searchMode.equals("astar") || searchMode.equals("alt")) && heuristic == null) return null;
+		final ContractionHierarchy hierarchy = searchMode.equals("ch") ? loadHierarchy(graph) : null;
+		if(searchMode.equals("ch") && hierarchy == null) return null;
+		return new Callable<RouteFinder>() {
+			public RouteFinder call() {
+				if(searchMode.equals("bidirectional")) return new BidirectionalSearch(graph);
+				if(hierarchy != null) return new ContractionSearch(graph, hierarchy);
+				RouteSearch search = new RouteSearch(graph);
+				if(indexed) search.useIndexedFringe();
+				if(heuristic != null) search.useHeuristic(heuristic);
+				return search;
+			}
+		};
+	}
+	
+	private static RouteFinder createFinder(Callable<RouteFinder> factory) {
+		try {
+			return factory.call();
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	// Loads the graph once and answers queries from stdin, a file or a socket until the input ends
+	private void serveRoutes(String inputFile) {
+		RouteGraph graph = loadGraph(inputFile);
+		if(graph == null) return;
+		Callable<RouteFinder> factory = finderFactory(graph, ANY_DESTINATION);
+		if(factory == null) return;
+		RouteServer server = new RouteServer(graph, factory, threadCount());
+		try {
+			if(options.containsKey("port")) server.listen(Integer.parseInt(options.get("port")));
+			else server.serve(options.containsKey("queries") ? options.get("queries") : "-", System.out);
+		} catch (FileNotFoundException e) {
+			System.out.println("Query file not found");
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		server.printStats(System.err);
+	}
+	
+	/*
+	Loads the input file into a RouteGraph with the loader selected in the options. Returns null if the file can not be
+	read. A snapshot which can not be written only costs the next run the parse, so it is reported on stderr and the
+	graph is used all the same.
+	*/
+	RouteGraph loadGraph(String inputFile) {
+		String snapshot = options.get("snapshot");
+		if("true".equals(snapshot)) snapshot = RouteGraphSnapshot.snapshotFile(inputFile);
+		try {
+			if(snapshot != null) {
+				RouteGraph graph = RouteGraphSnapshot.load(snapshot, inputFile);
+				if(graph != null) return graph;
+			}
+			RouteGraph graph = "mmap".equals(options.get("loader")) 
+					? RouteGraphLoader.load(inputFile, threadCount()) 
+					: RouteGraph.load(inputFile);
+			if(snapshot != null && new File(inputFile).isFile()) {
+				try {
+					RouteGraphSnapshot.write(graph, snapshot, inputFile);
+				} catch (IOException e) {
+					System.err.println("Can not write the snapshot " + snapshot + ": " + e);
+				}
+			}
+			return graph;
+		} catch (FileNotFoundException e) {
+			System.out.println("Input file not found");
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+	
+	/*
+	Reads the heuristic file given in the options. Without one, every estimate is 0 and A* behaves like uniform cost search.
+	A file of "city value" lines only holds the estimates to one destination, so it is refused when the queries can go to
+	any destination.
+	*/
+	private Heuristic loadHeuristic(RouteGraph graph, int destination) {
+		if(!options.containsKey("heuristic")) {
+			return new Heuristic() {
+				public int estimate(int city, int destination) {
+					return 0;
+				}
+			};
+		}
+		try {
+			Heuristic heuristic = Heuristic.load(options.get("heuristic"), graph, destination);
+			if(!heuristic.anyDestination() && destination == ANY_DESTINATION) {
+				System.out.println("A heuristic file of \"city value\" lines only holds the estimates to one destination. Use a file of \"city x y\" coordinates to answer queries to any destination.");
+				return null;
+			}
+			return heuristic;
+		} catch (FileNotFoundException e) {
+			System.out.println("Heuristic file not found");
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+	
+	/*
+	Maps the landmark index of the input file. A missing index, or one built for an older version of the input, is
+	built again and written, so only the first query on a new input pays for the preprocessing. An index which can not
+	be written is reported on stderr and used all the same.
+	*/
+	private LandmarkIndex loadLandmarks(RouteGraph graph) {
+		String indexFile = landmarkIndexFile();
+		try {
+			LandmarkIndex index = LandmarkIndex.load(indexFile, inputFile, graph);
+			if(index != null) return index;
+			index = LandmarkIndex.build(graph, DEFAULT_LANDMARKS);
+			if(new File(inputFile).isFile()) {
+				try {
+					index.write(indexFile, inputFile);
+				} catch (IOException e) {
+					System.err.println("Can not write the landmark index " + indexFile + ": " + e);
+				}
+			}
+			return index;
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+	
+	// Builds the landmark index with the number of landmarks given after --build-landmarks and reports its cost
+	private void buildLandmarks(int k) {
+		RouteGraph graph = loadGraph(inputFile);
+		if(graph == null) return;
+		long start = System.nanoTime();
+		LandmarkIndex index = LandmarkIndex.build(graph, k);
+		long built = System.nanoTime();
+		try {
+			index.write(landmarkIndexFile(), inputFile);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+		System.out.println("landmarks: " + index.landmarks.length);
+		System.out.println("build: " + (built - start)/1000000 + " ms");
+		System.out.println("index size: " + index.sizeInBytes()/1024 + " KB");
+	}
+	
+	// Maps the contraction hierarchy of the input file, or builds and writes it like loadLandmarks, with the same warning
+	private ContractionHierarchy loadHierarchy(RouteGraph graph) {
+		String indexFile = hierarchyFile();
+		try {
+			ContractionHierarchy hierarchy = ContractionHierarchy.load(indexFile, inputFile, graph);
+			if(hierarchy != null) return hierarchy;
+			hierarchy = ContractionHierarchy.build(graph);
+			if(new File(inputFile).isFile()) {
+				try {
+					hierarchy.write(indexFile, inputFile);
+				} catch (IOException e) {
+					System.err.println("Can not write the contraction hierarchy " + indexFile + ": " + e);
+				}
+			}
+			return hierarchy;
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+	
+	// Contracts the graph for --build-hierarchy and reports the cost of the preprocessing
+	private void buildHierarchy() {
+		RouteGraph graph = loadGraph(inputFile);
+		if(graph == null) return;
+		long start = System.nanoTime();
+		ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+		long built = System.nanoTime();
+		try {
+			hierarchy.write(hierarchyFile(), inputFile);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+		System.out.println("shortcuts: " + hierarchy.shortcutCount());
+		System.out.println("build: " + (built - start)/1000000 + " ms");
+		System.out.println("index size: " + hierarchy.sizeInBytes()/1024 + " KB");
+	}
+	
+	// Prints the shortest path tree of the source for --tree
+	private void printTree(String source) {
+		RouteGraph graph = loadGraph(inputFile);
+		if(graph == null) return;
+		ShortestPathTree tree = new RouteSearch(graph).shortestPathTree(graph.cityId(source));
+		try {
+			PrintStream out = outputStream();
+			tree.writeCsv(out);
+			if(out != System.out) out.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	// Computes the distance matrix for --matrix on threadCount() threads and writes it in the selected format
+	private void printMatrix(String sourceFile) {
+		RouteGraph graph = loadGraph(inputFile);
+		if(graph == null) return;
+		try {
+			int[] sources = RouteMatrix.readCities(sourceFile, graph);
+			int[] targets = options.containsKey("targets") ? RouteMatrix.readCities(options.get("targets"), graph) : sources;
+			long start = System.nanoTime();
+			RouteMatrix matrix = RouteMatrix.compute(graph, sources, targets, threadCount());
+			long computed = System.nanoTime();
+			if("binary".equals(options.get("format"))) {
+				if(!options.containsKey("output")) {
+					System.out.println("The binary format needs an --output file");
+					return;
+				}
+				matrix.writeBinary(options.get("output"));
+			} else {
+				PrintStream out = outputStream();
+				matrix.writeCsv(out);
+				if(out != System.out) out.close();
+			}
+			if(options.containsKey("stats")) {
+				System.err.println(sources.length + "x" + targets.length + " matrix: " + (computed - start)/1000000 + " ms");
+			}
+		} catch (FileNotFoundException e) {
+			System.out.println("City file not found");
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	private PrintStream outputStream() throws IOException {
+		if(!options.containsKey("output")) return System.out;
+		return new PrintStream(new BufferedOutputStream(new FileOutputStream(options.get("output"))));
+	}
+	
+	private String hierarchyFile() {
+		if(options.containsKey("hierarchy")) return options.get("hierarchy");
+		return ContractionHierarchy.indexFile(inputFile);
+	}
+	
+	private String landmarkIndexFile() {
+		if(options.containsKey("landmark-index")) return options.get("landmark-index");
+		return LandmarkIndex.indexFile(inputFile);
+	}
+	
+	int threadCount() {
+		if(options.containsKey("threads")) return Integer.parseInt(options.get("threads"));
+		return Runtime.getRuntime().availableProcessors();
+	}
+	
+	// Uniform cost search over successorMap. The result is stored in routeMap
+	void searchSuccessorMap(String source, String destination) {
+		routeMap.clear();
+		expandedCount = 0;
 		// The set stores the nodes which has been already been expanded
 		Set<String> visited = new HashSet<String>();
 		// The queue stores the Node object on the basis of cumulative path cost
@@ -65,6 +413,7 @@ public class find_route {
 		while(!fringe.isEmpty()) {
 			Node current = fringe.poll(); // Extract the Node with least cumulative path cost
 			insertInRouteMap(current); // Insert the Node in routeMap as it has already been visited. The least cost check is implemented in the method
+			expandedCount++;
 			if(current.city.equals(destination)) break; // Break from the loop if current node passes the goal test
 			
 			// If goal test is not achieved then, parse all the children of current city and store those in fringe if it has not been visited already
@@ -79,8 +428,14 @@ public class find_route {
 			// Add the current city to visited set as the Node has already been expanded above
 			visited.add(current.city);
 		}
-		// After exiting from the loop, print the output using the information stored in routeMap
-		printOutput(destination);
+	}
+	
+	// Prints the time taken to load the input and to search it, and the heap in use after the search
+	private void printStats(long loadNanos, long searchNanos) {
+		Runtime rt = Runtime.getRuntime();
+		System.out.println("load: " + loadNanos/1000000 + " ms");
+		System.out.println("search: " + searchNanos/1000000 + " ms");
+		System.out.println("heap used: " + (rt.totalMemory() - rt.freeMemory())/(1024*1024) + " MB");
 	}
 	
 	/*
@@ -101,6 +456,28 @@ public class find_route {
 				parent = (String) routeMap.get(destination)[0];
 			}
 		}
+		System.out.println(formatOutput(totalDistance, route));
+	}
+	
+	// Prints a route found on a RouteGraph in the same format as printOutput(destination)
+	void printOutput(RouteGraph graph, Route found) {
+		System.out.println(formatOutput(graph, found));
+	}
+	
+	static String formatOutput(RouteGraph graph, Route found) {
+		String totalDistance = "infinity";
+		Stack<String> route = new Stack<String>();
+		if(found != null) {
+			totalDistance = found.distance() + " km";
+			for(int i=found.cities.length-1;i>0;i--) {
+				int dist = found.pathCosts[i] - found.pathCosts[i-1];
+				route.push(graph.cityName(found.cities[i-1]) + " to " + graph.cityName(found.cities[i]) + ", " + dist + " km");
+			}
+		}
+		return formatOutput(totalDistance, route);
+	}
+	
+	private static String formatOutput(String totalDistance, Stack<String> route) {
 		StringBuffer sb = new StringBuffer();
 		sb.append("distance: " + totalDistance + "\n");
 		sb.append("route:\n");
@@ -111,7 +488,7 @@ public class find_route {
 				sb.append("\n");
 			}
 		}
-		System.out.println(sb.toString());
+		return sb.toString();
 	}
 	
 	/*
@@ -128,13 +505,14 @@ public class find_route {
 	}
 	
 	// Parse the input file and store the information in successorMap
-	private void parseInputFile(String inputFile) {
+	void parseInputFile(String inputFile) {
 		File input = new File(inputFile);
 		BufferedReader br = null;
 		try {
 			br = new BufferedReader(new FileReader(input.getPath()));
 			String line;
-			while(!(line=br.readLine()).equals("END OF INPUT")) {
+			// Stop at the END OF INPUT line, or at the end of the file if that line is missing
+			while((line=br.readLine()) != null && !line.equals("END OF INPUT")) {
 				String start = line.split(" ")[0];
 				String end = line.split(" ")[1];
 				String distance = line.split(" ")[2];
@@ -148,7 +526,7 @@ public class find_route {
 			e.printStackTrace();
 		} finally {
 			try {
-				br.close();
+				if(br!=null) br.close();
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
@@ -167,14 +545,47 @@ public class find_route {
 		}
 	}
 
+	static Map<String, String> parseOptions(String[] args, int from) {
+		Map<String, String> options = new HashMap<String, String>();
+		for(int i=from;i<args.length;i++) {
+			if(!args[i].startsWith("--")) continue;
+			String name = args[i].substring(2);
+			if(i+1 < args.length && !args[i+1].startsWith("--")) options.put(name, args[++i]);
+			else options.put(name, "true");
+		}
+		return options;
+	}
+
 	public static void main(String[] args) {
 		find_route fr = new find_route();
 		// Validating if the command line arguments provided are valid. If yes, the call findRoute method else display a error message
-		if(args.length == 3 
+		if(args.length >= 1) fr.inputFile = args[0];
+		if(args.length >= 2 && args[1].equals("--serve")) {
+			fr.options = parseOptions(args, 1);
+			fr.serveRoutes(args[0]);
+		} else if(args.length >= 3 && args[1].equals("--build-landmarks")) {
+			fr.options = parseOptions(args, 1);
+			fr.buildLandmarks(Integer.parseInt(args[2]));
+		} else if(args.length >= 3 && args[1].equals("--tree")) {
+			fr.options = parseOptions(args, 1);
+			fr.printTree(args[2]);
+		} else if(args.length >= 3 && args[1].equals("--matrix")) {
+			fr.options = parseOptions(args, 1);
+			fr.printMatrix(args[2]);
+		} else if(args.length >= 2 && args[1].equals("--build-hierarchy")) {
+			fr.options = parseOptions(args, 1);
+			fr.buildHierarchy();
+		} else if(args.length >= 3 
 				&& (args[0]!=null || args[0]!="") 
 				&& (args[1]!=null || args[1]!="") 
 				&& (args[2]!=null || args[2]!="")) {
-			fr.findRoute(args[0], args[1], args[2]);
+			fr.options = parseOptions(args, 3);
+			String fringe = fr.options.get("fringe");
+			// The snapshot and the loaders build a RouteGraph, so asking for one of them selects the RouteGraph search
+			if("csr".equals(fr.options.get("graph")) || "lazy".equals(fringe) || "indexed".equals(fringe) || fr.options.containsKey("snapshot")
+					|| fr.options.containsKey("loader")
+					|| fr.options.containsKey("search") && !"ucs".equals(fr.options.get("search"))) fr.findRouteOnGraph(args[0], args[1], args[2]);
+			else fr.findRoute(args[0], args[1], args[2]);
 		} else {
 			System.out.println("Enter valid input arguments");
 		}
@@ -0,0 +1,229 @@
+/*
+BitBoard stores a game state in two longs, one bit per cell for the pieces of each player, and a third long for the
+empty cells. Cell (row, column) is bit column*7 + row, with row 0 at the bottom, so every column takes 7 bits: the 6
+rows and one guard bit above them which is never set. Four cells in a line are then four bits at a fixed distance:
+	1 for a column, read bottom to top
+	7 for a row, read left to right
+	8 for the diagonals of set1 in GameBoard.gameScore, read from the lower left to the upper right
+	-6 for the diagonals of set2, read from the lower right to the upper left
+A line that leaves the board always passes a guard bit or falls off the end of the long, so shifting the board by
+these distances and ANDing the results finds all quadruples of the board at once, and a popcount counts them.
+
+The quadruples are matched in the same direction as the strings in GameBoard, so that the scores and the evalValue
+of a BitBoard are the same as the ones GameBoard computes from the char[][] board.
+
+The scores are kept up to date by play() and undo(): a new piece can only complete the quadruples that pass through its
+cell, so only those are counted, and undo() subtracts what the move added. Neither allocates anything.
+
+Every position also has a Zobrist hash for the transposition table: the XOR of a random key for every piece on its cell
+and a key for player 2 to move. play() and undo() XOR in the key of the cell that changes and the key of the side to
+move, so the hash of a position is the same whatever order its moves were played in.
+
+BitBoard is the SearchBoard of the standard Geometry; LineBoard takes any other.
+*/
+public class BitBoard implements SearchBoard {
+	static final int ROWS = 6;
+	static final int COLUMNS = 7;
+	// Bits per column: the rows and the guard bit
+	static final int COLUMN_BITS = ROWS + 1;
+	// All the cells of a column, and the top cell of every column
+	static final long COLUMN = (1L << ROWS) - 1;
+	static final long TOP_ROW;
+	// Distances between the cells of columns, rows and set1 diagonals; set2 diagonals are handled by upLeft
+	private static final int[] SHIFTS = {1, COLUMN_BITS, COLUMN_BITS + 1};
+	// Zobrist keys of a piece of each player on every bit, and of player 2 being the next to move
+	private static final long[][] PIECE_KEYS = new long[2][COLUMNS * COLUMN_BITS];
+	private static final long SIDE_KEY;
+	static {
+		long top = 0;
+		for(int c=0;c<COLUMNS;c++) top |= 1L << (c*COLUMN_BITS + ROWS - 1);
+		TOP_ROW = top;
+		// A fixed seed, so that the hashes are the same in every run
+		java.util.Random random = new java.util.Random(0x5A0B1C2DL);
+		for(long[] keys:PIECE_KEYS) {
+			for(int i=0;i<keys.length;i++) keys[i] = random.nextLong();
+		}
+		SIDE_KEY = random.nextLong();
+	}
+	// pieces[0] for player 1, pieces[1] for player 2
+	final long[] pieces = new long[2];
+	long empty;
+	// Row of the lowest empty cell of every column, ROWS if the column has none
+	final int[] height = new int[COLUMNS];
+	// The player to move, 0 for player 1 and 1 for player 2
+	int next;
+	// Number of quadruples completed by each player
+	final int[] scores = new int[2];
+	// Zobrist hash of the pieces and the player to move
+	long hash;
+	// Cells played by play() and the quadruples each of them completed, so that undo() can take them back
+	private final long[] moves = new long[ROWS * COLUMNS];
+	private final int[] completed = new int[ROWS * COLUMNS];
+	private int moveCount = 0;
+
+//	Creates the bitboard of a char[][] board in the layout of GameBoard, where '0' is an empty cell
+	public BitBoard(char[][] board, int next) {
+		for(int r=0;r<ROWS;r++) {
+			for(int c=0;c<COLUMNS;c++) {
+				long bit = cell(r, c);
+				if(board[r][c] == '1') {
+					pieces[0] |= bit;
+					hash ^= PIECE_KEYS[0][Long.numberOfTrailingZeros(bit)];
+				}
+				else if(board[r][c] == '2') {
+					pieces[1] |= bit;
+					hash ^= PIECE_KEYS[1][Long.numberOfTrailingZeros(bit)];
+				}
+				else if(board[r][c] == '0') empty |= bit;
+			}
+		}
+		for(int c=0;c<COLUMNS;c++) updateHeight(c);
+		this.next = next;
+		if(next == 1) hash ^= SIDE_KEY;
+		scores[0] = count(pieces[0], pieces[0], pieces[0], pieces[0]);
+		scores[1] = count(pieces[1], pieces[1], pieces[1], pieces[1]);
+	}
+
+	static long cell(int row, int column) {
+		return 1L << (column*COLUMN_BITS + row);
+	}
+
+	public int columns() {
+		return COLUMNS;
+	}
+
+	public int next() {
+		return next;
+	}
+
+	public long hash() {
+		return hash;
+	}
+
+//	The game ends when no column has an empty top cell
+	public boolean isTerminalState() {
+		return (empty & TOP_ROW) == 0;
+	}
+
+	public boolean isValidMove(int column) {
+		return column >= 0 && column < COLUMNS && (empty & cell(ROWS-1, column)) != 0;
+	}
+
+//	Drops a piece of the next player into the lowest empty cell of the column. The column must be a valid move.
+	public void play(int column) {
+		int index = column*COLUMN_BITS + height[column];
+		long bit = 1L << index;
+		long p = pieces[next] | bit;
+		pieces[next] = p;
+		empty &= ~bit;
+		int added = countThrough(p, bit);
+		scores[next] += added;
+		completed[moveCount] = added;
+		moves[moveCount++] = bit;
+		hash ^= PIECE_KEYS[next][index] ^ SIDE_KEY;
+		updateHeight(column);
+		next ^= 1;
+	}
+
+//	Takes back the last move played
+	public void undo() {
+		long bit = moves[--moveCount];
+		next ^= 1;
+		scores[next] -= completed[moveCount];
+		pieces[next] &= ~bit;
+		empty |= bit;
+		int index = Long.numberOfTrailingZeros(bit);
+		hash ^= PIECE_KEYS[next][index] ^ SIDE_KEY;
+		updateHeight(index / COLUMN_BITS);
+	}
+
+//	Cell of the last move played, 0 if there is none
+	long lastMove() {
+		return moveCount == 0 ? 0 : moves[moveCount-1];
+	}
+
+	public int lastColumn() {
+		return moveCount == 0 ? -1 : Long.numberOfTrailingZeros(lastMove()) / COLUMN_BITS;
+	}
+
+	public int lastRow() {
+		return moveCount == 0 ? -1 : Long.numberOfTrailingZeros(lastMove()) % COLUMN_BITS;
+	}
+
+	private void updateHeight(int column) {
+		long free = (empty >>> (column*COLUMN_BITS)) & COLUMN;
+		height[column] = free == 0 ? ROWS : Long.numberOfTrailingZeros(free);
+	}
+
+//	Number of quadruples completed by the player, the same as GameBoard.gameScore with the target "1111" or "2222"
+	public int score(int player) {
+		return scores[player];
+	}
+
+//	Score of the max player minus the score of the other player
+	public int getUtility(int maxPlayer) {
+		return scores[maxPlayer] - scores[maxPlayer ^ 1];
+	}
+
+//	Number of quadruples the player can still complete: the ones with an empty cell and no piece of the other player
+	public int open(int player) {
+		long p = pieces[player] | empty;
+		return count(p, p, p, p) - scores[player];
+	}
+	
+//	Number of empty cells, which is the number of moves left in the game
+	public int emptyCount() {
+		return Long.bitCount(empty);
+	}
+	
+	/*
+	Same as GameBoard.evalValue: every player gets 3 if one of its quadruples has 3 pieces followed by an empty cell,
+	otherwise 2 for 2 pieces followed by 2 empty cells, otherwise 1 for a piece followed by 3 empty cells.
+	*/
+	public int evalValue(int maxPlayer) {
+		return evalScore(maxPlayer) - evalScore(maxPlayer ^ 1);
+	}
+
+	private int evalScore(int player) {
+		long p = pieces[player];
+		long e = empty;
+		if(any(p, p, p, e)) return 3;
+		if(any(p, p, e, e)) return 2;
+		if(any(p, e, e, e)) return 1;
+		return 0;
+	}
+
+//	Counts the quadruples in all four directions whose cells, in the direction of the line, are in a, b, c and d
+	static int count(long a, long b, long c, long d) {
+		return Long.bitCount(line(a, b, c, d, 1)) + Long.bitCount(line(a, b, c, d, COLUMN_BITS))
+				+ Long.bitCount(line(a, b, c, d, COLUMN_BITS + 1)) + Long.bitCount(upLeft(a, b, c, d));
+	}
+
+	static boolean any(long a, long b, long c, long d) {
+		return (line(a, b, c, d, 1) | line(a, b, c, d, COLUMN_BITS) | line(a, b, c, d, COLUMN_BITS + 1) | upLeft(a, b, c, d)) != 0;
+	}
+
+//	Counts the quadruples of the pieces p which contain the cell bit. A quadruple contains the cell if it starts at most
+//	three steps before it.
+	static int countThrough(long p, long bit) {
+		int count = 0;
+		for(int shift:SHIFTS) {
+			long starts = bit | (bit >>> shift) | (bit >>> 2*shift) | (bit >>> 3*shift);
+			count += Long.bitCount(line(p, p, p, p, shift) & starts);
+		}
+		int shift = COLUMN_BITS - 1;
+		long starts = bit | (bit << shift) | (bit << 2*shift) | (bit << 3*shift);
+		return count + Long.bitCount(upLeft(p, p, p, p) & starts);
+	}
+
+//	First cells of the quadruples in a direction with a positive distance between the cells
+	private static long line(long a, long b, long c, long d, int shift) {
+		return a & (b >>> shift) & (c >>> 2*shift) & (d >>> 3*shift);
+	}
+
+//	First cells of the quadruples going up and to the left, a distance of -6
+	private static long upLeft(long a, long b, long c, long d) {
+		int shift = COLUMN_BITS - 1;
+		return a & (b << shift) & (c << 2*shift) & (d << 3*shift);
+	}
+}
@@ -26,50 +26,116 @@ class Player {
 
 //This class manages the gameboard, the players of the game and next player to play the next move
 public class GameBoard {
-	private final static int ROW_LENGTH = 6;
-	private final static int COLUMN_LENGTH = 7;
-	char[][] board = new char[ROW_LENGTH][COLUMN_LENGTH];
+	// Size of the board and the number of pieces in a row which score
+	final Geometry geometry;
+	private final int rows;
+	private final int columns;
+	char[][] board;
 	Player player1 = new Player("1");
 	Player player2 = new Player("2");
-	private final static String[] targetString = new String[] {"1111", "2222"};
+	// The targets of the standard board; gameScore(geometry.targetString) scores a board of any size
+	final static String[] targetString = Geometry.STANDARD.targetString;
 	Player nextPlayer;
+	// The same game state as a SearchBoard, which keeps the scores up to date when moves are played in place
+	private SearchBoard bits;
 	
 	/*This constructor parses the input file and creates the game boards and player as per the information
 	present in the input file.*/
 	public GameBoard(String inputFile) {
+		this(inputFile, Geometry.STANDARD);
+	}
+	
+//	Reads a board of the given size from the input file
+	public GameBoard(String inputFile, Geometry geometry) {
+		this.geometry = geometry;
+		this.rows = geometry.rows;
+		this.columns = geometry.columns;
+		this.board = new char[rows][columns];
 		parseInputFile(inputFile);
-		initGameScore(gameScore(targetString));
+		initGameScore();
 	}
 	
 //	This constructor creates a game object with the given board state and nextPlayer information
 	public GameBoard(char[][] boardState, Player nextPlayer) {
+		this(boardState, nextPlayer, Geometry.STANDARD);
+	}
+	
+	public GameBoard(char[][] boardState, Player nextPlayer, Geometry geometry) {
+		this.geometry = geometry;
+		this.rows = geometry.rows;
+		this.columns = geometry.columns;
 		this.board = boardState;
 		this.nextPlayer = nextPlayer;
-		initGameScore(gameScore(targetString));
+		initGameScore();
+	}
+	
+//	Creates a game with the given board and the player of the given name, "1" or "2", to move next
+	GameBoard(char[][] boardState, String nextPlayer) {
+		this(boardState, new Player(nextPlayer), Geometry.STANDARD);
 	}
 	
-//	Initialize the player scores from the argument passed to the method
-	private void initGameScore(int[] scores) {
-		this.player1.score = scores[0];
-		this.player2.score = scores[1];
+	GameBoard(char[][] boardState, String nextPlayer, Geometry geometry) {
+		this(boardState, new Player(nextPlayer), geometry);
+	}
+	
+	public static GameBoard fromString(String position) {
+		return fromString(position, Geometry.STANDARD);
+	}
+	
+	/*Creates a game object from a position written as in the input file: the rows from the top down and then the next
+	player, with any whitespace or '/' between them. Returns null if the position is not valid.*/
+	public static GameBoard fromString(String position, Geometry geometry) {
+		String cells = position.replaceAll("[\\s/]", "");
+		int size = geometry.rows * geometry.columns;
+		if(cells.length() != size + 1) return null;
+		char next = cells.charAt(size);
+		if(next != '1' && next != '2') return null;
+		char[][] board = new char[geometry.rows][geometry.columns];
+		for(int i=0;i<size;i++) {
+			board[geometry.rows-1 - i/geometry.columns][i%geometry.columns] = cells.charAt(i);
+		}
+		return new GameBoard(board, new Player(String.valueOf(next)), geometry);
+	}
+	
+//	Returns a new game object with a copy of the board, which can be played on without changing this one
+	public GameBoard copy() {
+		return new GameBoard(createCopy(this.board), this.nextPlayer, geometry);
+	}
+	
+//	Initialize the player scores from the lines counted on the search board, which are the same as gameScore(targetString)
+	private void initGameScore() {
+		bits = toSearchBoard();
+		this.player1.score = bits.score(0);
+		this.player2.score = bits.score(1);
+	}
+	
+//	Creates the bitboard of this game state, which the search plays its moves on. Only for the standard geometry.
+	public BitBoard toBitBoard() {
+		return new BitBoard(board, nextPlayer != null && nextPlayer.name.equals("2") ? 1 : 0);
+	}
+	
+//	Creates the board the search plays its moves on: a BitBoard for the standard geometry, a LineBoard for any other
+	public SearchBoard toSearchBoard() {
+		if(geometry.isStandard()) return toBitBoard();
+		return new LineBoard(board, nextPlayer != null && nextPlayer.name.equals("2") ? 1 : 0, geometry);
 	}
 
 //	Validates if the board state is a terminal state or not
 	public boolean isTerminalState() {
-		for(int i=0;i<COLUMN_LENGTH;i++) {
-			if(board[ROW_LENGTH-1][i]=='0') return false;
+		for(int i=0;i<columns;i++) {
+			if(board[rows-1][i]=='0') return false;
 		}
 		return true;
 	}
 	
 //	Validates if the input column number is valid as per the input board state
 	public boolean isValidMove(int column) {
-		return column>=0 && column<COLUMN_LENGTH && board[ROW_LENGTH-1][column]=='0' ? true : false;
+		return column>=0 && column<columns && board[rows-1][column]=='0' ? true : false;
 	}
 	
 //	Calculate the row number to play the move for a given column number
 	public int getPosForValidMove(int column) {
-		for(int i=0;i<ROW_LENGTH;i++) {
+		for(int i=0;i<rows;i++) {
 			if(board[i][column]=='0') return i;
 		}
 		return -1;
@@ -83,14 +149,31 @@ public class GameBoard {
 		if(isValidMove(column) && xPos!=-1) {
 			resultBoard[xPos][column] =  this.nextPlayer.name.charAt(0);
 		}
-		return new GameBoard(resultBoard, next);
+		return new GameBoard(resultBoard, next, geometry);
 	}
 	
+//	Plays a valid move in place. The scores are updated from the quadruples through the new piece only.
+	public void play(int column) {
+		board[getPosForValidMove(column)][column] = this.nextPlayer.name.charAt(0);
+		bits.play(column);
+		this.player1.score = bits.score(0);
+		this.player2.score = bits.score(1);
+		this.nextPlayer = this.nextPlayer.name.equals("1") ? this.player2 : this.player1;
+	}
+	
+//	Takes back the last move played with play(column)
+	public void undo() {
+		board[bits.lastRow()][bits.lastColumn()] = '0';
+		bits.undo();
+		this.player1.score = bits.score(0);
+		this.player2.score = bits.score(1);
+		this.nextPlayer = this.nextPlayer.name.equals("1") ? this.player2 : this.player1;
+	}
 	
 	private char[][] createCopy(char[][] board) {
-		char[][] result = new char[ROW_LENGTH][COLUMN_LENGTH];
-		for(int i=ROW_LENGTH-1;i>=0;i--) {
-			for(int j=0;j<COLUMN_LENGTH;j++) {
+		char[][] result = new char[rows][columns];
+		for(int i=rows-1;i>=0;i--) {
+			for(int j=0;j<columns;j++) {
 				result[i][j] = this.board[i][j];
 			}
 		}
@@ -121,8 +204,8 @@ public class GameBoard {
 	
 	public String getGameStateAsString() {
 		StringBuffer sb = new StringBuffer();
-		for(int i=ROW_LENGTH-1;i>=0;i--) {
-			for(int j=0;j<COLUMN_LENGTH;j++) {
+		for(int i=rows-1;i>=0;i--) {
+			for(int j=0;j<columns;j++) {
 				sb.append(this.board[i][j]);
 			}
 			sb.append("\r\n");
@@ -135,26 +218,26 @@ public class GameBoard {
 	public int[] gameScore(String[] targetString) {
 		// Row
 		int[] score = new int[] {0,0};
-		for(int i=0;i<ROW_LENGTH;i++) {
+		for(int i=0;i<rows;i++) {
 			StringBuffer sb = new StringBuffer();
-			for(int j=0;j<COLUMN_LENGTH;j++) {
+			for(int j=0;j<columns;j++) {
 				sb.append(board[i][j]);
 			}
 			score = calculateAndAssignScore(sb.toString(), targetString, score);
 		}
 		
 		// Column
-		for(int i=0;i<COLUMN_LENGTH;i++) {
+		for(int i=0;i<columns;i++) {
 			StringBuffer sb = new StringBuffer();
-			for(int j=0;j<ROW_LENGTH;j++) {
+			for(int j=0;j<rows;j++) {
 				sb.append(board[j][i]);
 			}
 			score = calculateAndAssignScore(sb.toString(), targetString, score);
 		}
 		
 		// Diagonals
-		int[][] set1 = new int[][] {{2,0}, {1,0}, {0,0}, {0,1}, {0,2}, {0,3}};
-		int[][] set2 = new int[][] {{2,6}, {1,6}, {0,6}, {0,5}, {0,4}, {0,3}};
+		int[][] set1 = geometry.set1;
+		int[][] set2 = geometry.set2;
 		for(int i=0;i<set1.length;i++) {
 			int x1 = set1[i][0];
 			int y1 = set1[i][1];
@@ -163,31 +246,24 @@ public class GameBoard {
 			StringBuffer sb1 = new StringBuffer();
 			StringBuffer sb2 = new StringBuffer();
 			do sb1.append(board[x1][y1]);
-			while(++x1 < ROW_LENGTH && ++y1 < COLUMN_LENGTH);
+			while(++x1 < rows && ++y1 < columns);
 			do sb2.append(board[x2][y2]);
-			while(++x2 < ROW_LENGTH && --y2 >= 0);
+			while(++x2 < rows && --y2 >= 0);
 			score = calculateAndAssignScore(sb1.toString(), targetString, score);
 			score = calculateAndAssignScore(sb2.toString(), targetString, score);
 		}
 		return score;
 	}
 	
-	// Used to calculate score information
-	private int[] calculateAndAssignScore(String actualString, String[] targetString, int[] score) {
-		int fromIndex = 0;
-		int index1 = actualString.indexOf(targetString[0], fromIndex);
-		int index2 = actualString.indexOf(targetString[1], fromIndex);
-		while(index1!=-1 || index2!=-1) {
-			if(index1 >= 0) {
-				score[0] = score[0] + 1;
-				fromIndex = index1+1;
-			}
-			if(index2 >= 0) {
-				score[1] = score[1] + 1;
-				fromIndex = index2+1;
+	// Used to calculate score information. Every target is counted on its own, so a line with complete lines of both
+	// players, which the larger boards have room for, counts each of them once.
+	int[] calculateAndAssignScore(String actualString, String[] targetString, int[] score) {
+		for(int i=0;i<2;i++) {
+			int index = actualString.indexOf(targetString[i]);
+			while(index!=-1) {
+				score[i] = score[i] + 1;
+				index = actualString.indexOf(targetString[i], index+1);
 			}
-			index1 = actualString.indexOf(targetString[0], fromIndex);
-			index2 = actualString.indexOf(targetString[1], fromIndex);
 		}
 		return score;
 	}
@@ -199,10 +275,10 @@ public class GameBoard {
 		try {
 			br = new BufferedReader(new FileReader(input.getPath()));
 			String line;
-			int row = ROW_LENGTH-1;
+			int row = rows-1;
 			while((line=br.readLine()) != null) {
 				int columnLength = line.length();
-				if(columnLength == COLUMN_LENGTH && row >= 0) {
+				if(columnLength == columns && row >= 0) {
 					for(int column = 0;column < columnLength; column++) {
 						board[row][column] = line.charAt(column);
 					}
@@ -249,15 +325,15 @@ public class GameBoard {
 		}
 	}
 
-//	The method calculates the evalScore for non terminal states
+//	The method calculates the evalScore for non terminal states. The search uses SearchBoard.evalValue, which gives the same values.
 	public int evalValue(Player maxPlayer) {
-		String[] ones = new String[] {"1110", "1100", "1000"};
-		String[] twos = new String[] {"2220", "2200", "2000"};
+		String[] ones = geometry.ones;
+		String[] twos = geometry.twos;
 		int[] score = new int[2];
 		for(int i=0;i<ones.length;i++) {
 			int[] tempScore = gameScore(new String[] {ones[i], twos[i]});
-			if(score[0]==0 && tempScore[0]!=0) score[0] = 3-i;
-			if(score[1]==0 && tempScore[1]!=0) score[1] = 3-i;
+			if(score[0]==0 && tempScore[0]!=0) score[0] = ones.length-i;
+			if(score[1]==0 && tempScore[1]!=0) score[1] = ones.length-i;
 			if(score[0]!=0 && score[1]!=0) break;
 		}
 //		System.out.println("Eval Scores: " + score[0] + " & " + score[1]);
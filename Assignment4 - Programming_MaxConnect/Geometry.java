@@ -0,0 +1,150 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/*
+Geometry is the size of the board and the number of pieces in a row which score, 6 rows, 7 columns and 4 for the
+standard game. Everything that depends on it is computed once when the geometry is created:
+	the strings GameBoard matches to score and evaluate a board, "1111" and "1110", "1100", "1000" for connect 4
+	the first cells of the diagonals GameBoard reads, set1 from the lower left to the upper right and set2 from the
+	lower right to the upper left, only those with at least connect cells
+	the windows, every connect cells in a line, read in the same direction as GameBoard reads the line, and for every
+	cell the windows through it with its position in them, which LineBoard keeps its scores with
+	the Zobrist keys of every cell
+Cell (row, column) of the windows and keys is column*rows + row, with row 0 at the bottom.
+The size is limited so that a move fits in the 4 bits the transposition table keeps for it and a window in an int.
+*/
+public class Geometry {
+	static final int MAX_ROWS = 12;
+	static final int MAX_COLUMNS = 14;
+	static final int MAX_CELLS = MAX_ROWS * MAX_COLUMNS;
+	static final Geometry STANDARD = new Geometry(6, 7, 4);
+	final int rows;
+	final int columns;
+	final int connect;
+	// "1111" and "2222" for connect 4
+	final String[] targetString;
+	// Patterns of evalValue for each player, the one worth connect-1 first
+	final String[] ones;
+	final String[] twos;
+	// {row, column} of the first cell of the diagonals
+	final int[][] set1;
+	final int[][] set2;
+	// Number of windows, and the windows through every cell packed as window << 4 | position in the window
+	final int windows;
+	final int[][] cellWindows;
+	final long[][] pieceKeys;
+	final long sideKey;
+
+	private Geometry(int rows, int columns, int connect) {
+		this.rows = rows;
+		this.columns = columns;
+		this.connect = connect;
+		targetString = new String[] {repeat('1', connect), repeat('2', connect)};
+		ones = new String[connect - 1];
+		twos = new String[connect - 1];
+		for(int i=0;i<connect-1;i++) {
+			ones[i] = repeat('1', connect-1 - i) + repeat('0', i + 1);
+			twos[i] = repeat('2', connect-1 - i) + repeat('0', i + 1);
+		}
+		int diagonals = Math.max(0, rows - connect + 1) + Math.max(0, columns - connect);
+		if(rows < connect || columns < connect) diagonals = 0;
+		set1 = new int[diagonals][];
+		set2 = new int[diagonals][];
+		int n = 0;
+		for(int r=rows-connect;r>=0 && diagonals>0;r--,n++) {
+			set1[n] = new int[] {r, 0};
+			set2[n] = new int[] {r, columns-1};
+		}
+		for(int c=1;c<=columns-connect && diagonals>0;c++,n++) {
+			set1[n] = new int[] {0, c};
+			set2[n] = new int[] {0, columns-1 - c};
+		}
+		// Every window as its cells, in the order GameBoard.gameScore reads the lines
+		int[][] lines = new int[rows * columns * 4][];
+		int count = 0;
+		for(int r=0;r<rows;r++) {
+			for(int c=0;c+connect<=columns;c++) lines[count++] = window(r, c, 0, 1);
+		}
+		for(int c=0;c<columns;c++) {
+			for(int r=0;r+connect<=rows;r++) lines[count++] = window(r, c, 1, 0);
+		}
+		for(int i=0;i<diagonals;i++) {
+			for(int r=set1[i][0],c=set1[i][1];r+connect<=rows && c+connect<=columns;r++,c++) lines[count++] = window(r, c, 1, 1);
+			for(int r=set2[i][0],c=set2[i][1];r+connect<=rows && c-connect>=-1;r++,c--) lines[count++] = window(r, c, 1, -1);
+		}
+		windows = count;
+		int[] through = new int[rows * columns];
+		for(int w=0;w<count;w++) {
+			for(int cell:lines[w]) through[cell]++;
+		}
+		cellWindows = new int[rows * columns][];
+		for(int cell=0;cell<cellWindows.length;cell++) cellWindows[cell] = new int[through[cell]];
+		Arrays.fill(through, 0);
+		for(int w=0;w<count;w++) {
+			for(int i=0;i<connect;i++) {
+				int cell = lines[w][i];
+				cellWindows[cell][through[cell]++] = w << 4 | i;
+			}
+		}
+		// A fixed seed for every geometry, so that the hashes are the same in every run
+		Random random = new Random(0x5A0B1C2DL ^ (rows << 16 | columns << 8 | connect));
+		pieceKeys = new long[2][rows * columns];
+		for(long[] keys:pieceKeys) {
+			for(int i=0;i<keys.length;i++) keys[i] = random.nextLong();
+		}
+		sideKey = random.nextLong();
+	}
+
+	/*
+	Returns the geometry, the standard one for 6, 7 and 4, or null if the board is larger than MAX_ROWS by MAX_COLUMNS
+	or connect is less than 2 or longer than both sides of the board.
+	*/
+	public static Geometry of(int rows, int columns, int connect) {
+		if(rows == 6 && columns == 7 && connect == 4) return STANDARD;
+		if(rows < 1 || rows > MAX_ROWS || columns < 1 || columns > MAX_COLUMNS) return null;
+		if(connect < 2 || connect > Math.max(rows, columns)) return null;
+		return new Geometry(rows, columns, connect);
+	}
+
+//	Returns the geometry for a size written as <rows>x<columns>, null if it is not valid
+	public static Geometry parse(String size, int connect) {
+		String[] parts = size.split("x");
+		if(parts.length != 2) return null;
+		try {
+			return of(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), connect);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	public boolean isStandard() {
+		return this == STANDARD;
+	}
+
+	public int cell(int row, int column) {
+		return column*rows + row;
+	}
+
+	public char[][] emptyBoard() {
+		char[][] board = new char[rows][columns];
+		for(char[] row:board) Arrays.fill(row, '0');
+		return board;
+	}
+
+	public String toString() {
+		return rows + "x" + columns + " connect " + connect;
+	}
+
+//	The cells of the window starting at the cell and going connect cells in the direction
+	private int[] window(int row, int column, int rowStep, int columnStep) {
+		int[] cells = new int[connect];
+		for(int i=0;i<connect;i++) cells[i] = cell(row + i*rowStep, column + i*columnStep);
+		return cells;
+	}
+
+	private static String repeat(char c, int count) {
+		char[] chars = new char[count];
+		Arrays.fill(chars, c);
+		return new String(chars);
+	}
+}
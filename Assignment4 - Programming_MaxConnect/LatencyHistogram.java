@@ -0,0 +1,64 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+LatencyHistogram counts latencies in a fixed number of buckets, so its memory does not grow with the number of values
+recorded and any number of threads record into it without a lock. Values below 32 ns have a bucket each, and every
+power of two above that is split into 32 buckets, so a percentile is within about 3% of the exact value. A summary
+reads the counts while other threads may still record, and is then off by at most the values recorded meanwhile.
+
+RouteServer of Assignment1 and MaxConnect4Batch of Assignment4 each have a copy of this file, since every assignment
+is compiled on its own; the two copies are the same.
+*/
+public class LatencyHistogram {
+	private static final int SUB_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	// Buckets up to the largest power of two of a positive long
+	private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	public void record(long nanos) {
+		counts.incrementAndGet(bucket(Math.max(0, nanos)));
+	}
+
+	private static int bucket(long value) {
+		if(value < SUB_BUCKETS) return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+//	The middle of the range of values of the bucket
+	private static long value(int bucket) {
+		if(bucket < SUB_BUCKETS) return bucket;
+		int shift = bucket / SUB_BUCKETS - 1;
+		long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) / 2;
+	}
+
+	/*
+	The number of values recorded, the throughput since startNanos and the p50/p99 latency, in the form
+	"name: count, throughput: x name/s, p50: y ms, p99: z ms". Returns null if nothing was recorded.
+	*/
+	public String summary(String name, long startNanos) {
+		long[] snapshot = new long[BUCKETS];
+		long count = 0;
+		for(int i=0;i<BUCKETS;i++) {
+			snapshot[i] = counts.get(i);
+			count += snapshot[i];
+		}
+		if(count == 0) return null;
+		double seconds = (System.nanoTime() - startNanos) / 1e9;
+		return String.format("%s: %d, throughput: %.1f %s/s, p50: %.3f ms, p99: %.3f ms", name, count, count / seconds,
+				name, percentile(snapshot, count, 50) / 1e6, percentile(snapshot, count, 99) / 1e6);
+	}
+
+	private static long percentile(long[] snapshot, long count, int p) {
+		long rank = Math.max(1, (long) Math.ceil(p / 100.0 * count));
+		long seen = 0;
+		for(int i=0;i<snapshot.length;i++) {
+			seen += snapshot[i];
+			if(seen >= rank) return value(i);
+		}
+		return value(snapshot.length - 1);
+	}
+}
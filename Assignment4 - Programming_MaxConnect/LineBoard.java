@@ -0,0 +1,174 @@
+/*
+LineBoard is the SearchBoard of a board of any Geometry, for the variants which do not fit in the longs of BitBoard.
+It keeps, for every window of connect cells in a line, a mask of the positions in the window each player holds, bit
+i for the i-th cell in the direction GameBoard reads the line. A window scores for the player when the player holds
+all of it, and it counts for evalValue when the player holds its first j cells and the rest is empty, like the string
+"1100" for j = 2 and connect 4.
+
+Besides the masks the board keeps, for each player, the number of completed windows, the number of windows without a
+piece of the other player and the number of windows of each j for evalValue. play() and undo() change only the windows
+through the cell of the move, taking out what a window counted for before the move and adding what it counts for
+after it, so scores, open and evalValue never look at the whole board and nothing is allocated.
+*/
+public class LineBoard implements SearchBoard {
+	final Geometry geometry;
+	private final int rows;
+	private final int full;
+	// masks[player][window]: the positions of the window the player holds
+	private final int[][] masks;
+	// Piece on every cell, 0 for none, 1 and 2 for the players
+	private final byte[] cells;
+	// Row of the lowest empty cell of every column, rows if the column has none
+	private final int[] height;
+	private int next;
+	private long hash;
+	private int empty;
+	// Windows completed by each player, windows without a piece of the other player, and windows of each j
+	private final int[] scores = new int[2];
+	private final int[] unblocked = new int[2];
+	private final int[][] prefixes;
+	// Cells played by play(), so that undo() can take them back
+	private final int[] moves;
+	private int moveCount = 0;
+
+//	Creates the board of a char[][] board in the layout of GameBoard, where '0' is an empty cell
+	public LineBoard(char[][] board, int next, Geometry geometry) {
+		this.geometry = geometry;
+		this.rows = geometry.rows;
+		this.full = (1 << geometry.connect) - 1;
+		this.masks = new int[2][geometry.windows];
+		this.cells = new byte[rows * geometry.columns];
+		this.height = new int[geometry.columns];
+		this.prefixes = new int[2][geometry.connect];
+		this.moves = new int[cells.length];
+		unblocked[0] = unblocked[1] = geometry.windows;
+		for(int r=0;r<rows;r++) {
+			for(int c=0;c<geometry.columns;c++) {
+				if(board[r][c] == '1') place(geometry.cell(r, c), 0);
+				else if(board[r][c] == '2') place(geometry.cell(r, c), 1);
+				else if(board[r][c] == '0') empty++;
+			}
+		}
+		for(int c=0;c<geometry.columns;c++) {
+			int r = 0;
+			while(r < rows && board[r][c] != '0') r++;
+			height[c] = r;
+		}
+		this.next = next;
+		if(next == 1) hash ^= geometry.sideKey;
+	}
+
+	public int columns() {
+		return geometry.columns;
+	}
+
+	public int next() {
+		return next;
+	}
+
+	public long hash() {
+		return hash;
+	}
+
+//	The game ends when no column has an empty top cell
+	public boolean isTerminalState() {
+		for(int c=0;c<geometry.columns;c++) {
+			if(cells[geometry.cell(rows-1, c)] == 0) return false;
+		}
+		return true;
+	}
+
+	public boolean isValidMove(int column) {
+		return column >= 0 && column < geometry.columns && cells[geometry.cell(rows-1, column)] == 0;
+	}
+
+	public void play(int column) {
+		int cell = geometry.cell(height[column], column);
+		place(cell, next);
+		empty--;
+		moves[moveCount++] = cell;
+		hash ^= geometry.sideKey;
+		int r = height[column] + 1;
+		while(r < rows && cells[geometry.cell(r, column)] != 0) r++;
+		height[column] = r;
+		next ^= 1;
+	}
+
+	public void undo() {
+		int cell = moves[--moveCount];
+		next ^= 1;
+		hash ^= geometry.pieceKeys[next][cell] ^ geometry.sideKey;
+		cells[cell] = 0;
+		empty++;
+		for(int packed:geometry.cellWindows[cell]) {
+			int w = packed >>> 4;
+			count(w, -1);
+			masks[next][w] &= ~(1 << (packed & 15));
+			count(w, 1);
+		}
+		height[cell / rows] = cell % rows;
+	}
+
+	public int lastColumn() {
+		return moveCount == 0 ? -1 : moves[moveCount-1] / rows;
+	}
+
+	public int lastRow() {
+		return moveCount == 0 ? -1 : moves[moveCount-1] % rows;
+	}
+
+//	Puts a piece of the player on the cell and updates the windows through it
+	private void place(int cell, int player) {
+		cells[cell] = (byte) (player + 1);
+		hash ^= geometry.pieceKeys[player][cell];
+		for(int packed:geometry.cellWindows[cell]) {
+			int w = packed >>> 4;
+			count(w, -1);
+			masks[player][w] |= 1 << (packed & 15);
+			count(w, 1);
+		}
+	}
+
+//	Adds what the window counts for to the counts of both players, or takes it out for a sign of -1
+	private void count(int w, int sign) {
+		for(int player=0;player<2;player++) {
+			if(masks[player ^ 1][w] != 0) continue;
+			int m = masks[player][w];
+			unblocked[player] += sign;
+			if(m == full) scores[player] += sign;
+			else if(m != 0 && (m & (m + 1)) == 0) prefixes[player][Integer.bitCount(m)] += sign;
+		}
+	}
+
+	public int score(int player) {
+		return scores[player];
+	}
+
+	public int getUtility(int maxPlayer) {
+		return scores[maxPlayer] - scores[maxPlayer ^ 1];
+	}
+
+	public int open(int player) {
+		return unblocked[player] - scores[player];
+	}
+
+	public int emptyCount() {
+		return empty;
+	}
+
+	/*
+	Same as GameBoard.evalValue: every player gets the largest j for which one of its windows has j pieces followed by
+	connect-j empty cells, 0 if there is none.
+	*/
+	public int evalValue(int maxPlayer) {
+		return evalScore(maxPlayer) - evalScore(maxPlayer ^ 1);
+	}
+
+	private int evalScore(int player) {
+		int[] p = prefixes[player];
+		for(int j=p.length-1;j>0;j--) {
+			if(p[j] > 0) return j;
+		}
+		return 0;
+	}
+}
@@ -1,26 +1,154 @@
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.Scanner;
 
 // The main class which is the entry point to the game
 public class MaxConnect4 {
+	// Number of nodes visited by the last minimaxDecision
+	long nodeCount = 0;
+	// Depth of the current search and the best move found at its root so far
+	private int rootDepth;
+	private int rootAction;
+	// Value of the move chosen by the last decision, for the player who makes it
+	int rootValue;
+	// Positions searched by earlier moves and subtrees, null to search without a table
+	TranspositionTable table;
+	static final int DEFAULT_TABLE_MEGABYTES = 32;
+	// Longest game on the largest board, and so the deepest ply of any search
+	static final int MAX_PLY = Geometry.MAX_CELLS;
+	// Whether the moves below the root are ordered by MoveOrdering, or tried in column order
+	boolean ordering = true;
+	private final MoveOrdering order = new MoveOrdering(MAX_PLY + 1);
+	// Whether the root is searched by iterativeDeepening, which orders the root as well
+	private boolean iterative;
+	// Best line found from every ply of the current search, and the best line of the last completed search
+	private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+	private final int[] pvLength = new int[MAX_PLY + 1];
+	private final int[] previousPv = new int[MAX_PLY + 1];
+	private int previousPvLength;
+	// Whether the nodes searched are still on the previous best line
+	private boolean followPv;
+	// System.nanoTime() at which the search is abandoned, and whether it was
+	private long deadline = Long.MAX_VALUE;
+	private boolean aborted;
+	// Depth of the deepest search iterativeDeepening completed
+	int completedDepth;
+	// Best replies to the first moves of a game, null to search them
+	OpeningBook book;
+	// Moves taken from the book
+	long bookHits = 0;
+	// Number of empty cells from which the game is searched to the end
+	int endgameCells = DEFAULT_ENDGAME_CELLS;
+	static final int DEFAULT_ENDGAME_CELLS = 14;
+	private static final int NO_BOUND = Integer.MIN_VALUE;
+	// Time for every move in milliseconds, 0 to search to the full depth instead
+	long timeBudget = 0;
+	// Threads for the search to the full depth, null to search on this thread
+	ParallelSearch parallel;
+	// What the last decision searched, null to not count it
+	SearchStatistics stats;
+	// Size of the board and the number of pieces in a row which score
+	Geometry geometry = Geometry.STANDARD;
 	
-	// Read the arguments and validates the format as per the project requirements
+	// Read the arguments and validates the format as per the project requirements. The arguments may be followed by
+	// --table <megabytes> for the size of the transposition table, 0 to search without one, --replace always|depth
+	// for its replacement policy, --time <milliseconds> to search every move by iterative deepening within that
+	// time, with the depth argument as the deepest search, --threads <count> to split the search to the full depth
+	// over several threads, --book <file> to take the first moves from an opening book, and --endgame <cells> for the
+	// number of empty cells from which the game is searched to the end, 0 to never search further than the depth.
+	// --size <rows>x<columns> and --connect <count> play on another board than 6x7 with connect 4, see Geometry; the
+	// opening book is only for the standard board.
+	// --stats on prints the statistics of the search, see SearchStatistics, as JSON after the move in one-move mode and
+	// as one line after every move of the computer in interactive mode. It can not be combined with --threads without
+	// --time, as the parallel search keeps no statistics.
+	// "build-book <file> <plies> <depth>" searches the opening book for the given number of plies, see OpeningBook.
+	// Two more modes search many positions in one process, see MaxConnect4Batch, with --threads worker threads, one per
+	// processor by default:
+	// "batch <positions> <output> <depth>" searches the positions listed in the file, or stdin for "-", one board or
+	// board file per line, and writes the moves to the output file, or stdout for "-".
+	// "self-play <input> <games> <depth>" plays the games from the board or board file, with --opponent-depth <depth>
+	// for the other player, the same depth by default, and --random-moves <count> random moves first, 4 by default.
 	public static void main(String[] args) {
-		if(args.length == 4) {
+		if(args.length >= 4 && args.length % 2 == 0) {
 			String mode = args[0];
 			String inputFile = args[1];
 			int depth = Integer.parseInt(args[3]);
+			int megabytes = DEFAULT_TABLE_MEGABYTES;
+			int replacement = TranspositionTable.DEPTH;
+			long budget = 0;
+			int threads = 0;
+			int opponentDepth = depth;
+			int randomMoves = 4;
+			String bookFile = null;
+			int endgameCells = DEFAULT_ENDGAME_CELLS;
+			boolean statistics = false;
+			String size = "6x7";
+			int connect = 4;
+			for(int i=4;i<args.length;i+=2) {
+				if(args[i].equals("--table")) megabytes = Integer.parseInt(args[i+1]);
+				else if(args[i].equals("--replace")) replacement = TranspositionTable.replacement(args[i+1]);
+				else if(args[i].equals("--time")) budget = Long.parseLong(args[i+1]);
+				else if(args[i].equals("--threads")) threads = Integer.parseInt(args[i+1]);
+				else if(args[i].equals("--opponent-depth")) opponentDepth = Integer.parseInt(args[i+1]);
+				else if(args[i].equals("--random-moves")) randomMoves = Integer.parseInt(args[i+1]);
+				else if(args[i].equals("--book")) bookFile = args[i+1];
+				else if(args[i].equals("--endgame")) endgameCells = Integer.parseInt(args[i+1]);
+				else if(args[i].equals("--size")) size = args[i+1];
+				else if(args[i].equals("--connect")) connect = Integer.parseInt(args[i+1]);
+				else if(args[i].equals("--stats") && (args[i+1].equals("on") || args[i+1].equals("off"))) statistics = args[i+1].equals("on");
+				else replacement = -1;
+			}
+			Geometry geometry = Geometry.parse(size, connect);
+			if(megabytes < 0 || replacement == -1 || budget < 0 || threads < 0 || randomMoves < 0 || endgameCells < 0 || geometry == null) {
+				System.out.println("Enter valid command arguments.");
+				return;
+			}
+			if(statistics && threads > 1 && budget == 0 && !mode.equals("batch") && !mode.equals("self-play")) {
+				System.out.println("--stats is not available with --threads: the parallel search is not instrumented.");
+				return;
+			}
+			if(!geometry.isStandard() && (mode.equals("build-book") || bookFile != null)) {
+				System.out.println("The opening book is only for the 6x7 board with connect 4.");
+				return;
+			}
+			OpeningBook book = null;
+			if(mode.equals("build-book")) {
+				buildBook(args[1], Integer.parseInt(args[2]), depth, megabytes, replacement);
+				return;
+			} else if(bookFile != null) {
+				book = loadBook(bookFile);
+				if(book == null) return;
+			}
+			if(mode.equals("batch") || mode.equals("self-play")) {
+				if(threads == 0) threads = Runtime.getRuntime().availableProcessors();
+				playBatch(mode, args[1], args[2], new MaxConnect4Batch(depth, threads, budget, megabytes, replacement, book,
+						endgameCells, geometry), opponentDepth, randomMoves);
+				return;
+			}
+			MaxConnect4 game = new MaxConnect4();
+			if(megabytes > 0) game.table = new TranspositionTable(megabytes, replacement);
+			game.timeBudget = budget;
+			game.book = book;
+			game.endgameCells = endgameCells;
+			game.geometry = geometry;
+			if(statistics) game.stats = new SearchStatistics();
+			if(threads > 1) {
+				game.parallel = new ParallelSearch(threads, game.table);
+				game.parallel.book = book;
+				game.parallel.endgameCells = endgameCells;
+			}
 			if(mode.equals("one-move")) {
 				String outputFile = args[2];
 				// Call playOneMove method when the play mode entered is "one-move"
-				new MaxConnect4().playOneMove(inputFile, outputFile, depth);
+				game.playOneMove(inputFile, outputFile, depth);
 			}
 			else if(mode.equals("interactive")) {
 				String nextPlayer = args[2];
 				// Call playInteractive method when the play mode entered is "interactive"
-				new MaxConnect4().playInteractive(inputFile, nextPlayer, depth);
+				game.playInteractive(inputFile, nextPlayer, depth);
 			}
 			// Print the following error when game mode is not "one-move" or "interactive"
 			else System.out.println("Enter a valid game mode");
@@ -29,6 +157,58 @@ public class MaxConnect4 {
 		else System.out.println("Enter valid command arguments.");
 	}
 	
+	// Searches the opening book from the empty board and writes it to the file
+	private static void buildBook(String file, int plies, int depth, int megabytes, int replacement) {
+		MaxConnect4 engine = new MaxConnect4();
+		if(megabytes > 0) engine.table = new TranspositionTable(megabytes, replacement);
+		long start = System.nanoTime();
+		OpeningBook book = OpeningBook.build(new BitBoard(Geometry.STANDARD.emptyBoard(), 0), plies, depth, engine);
+		try {
+			book.write(file);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+		System.out.println("Opening book of " + book.size + " positions, " + plies + " plies searched to depth " + depth
+				+ ", " + book.sizeInBytes() + " bytes, built in " + (System.nanoTime() - start) / 1000000 + " ms");
+	}
+	
+//	Maps the opening book, prints a message and returns null if it can not be read
+	private static OpeningBook loadBook(String file) {
+		try {
+			OpeningBook book = OpeningBook.load(file);
+			if(book == null) System.out.println("Enter a valid opening book file, see build-book.");
+			return book;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+	
+	// Runs the batch or self-play mode and prints the throughput on stderr
+	private static void playBatch(String mode, String input, String output, MaxConnect4Batch batch, int opponentDepth, int randomMoves) {
+		try {
+			if(mode.equals("batch")) {
+				PrintStream out = output.equals("-") ? System.out : new PrintStream(new FileOutputStream(output));
+				batch.evaluate(input, out);
+				if(out != System.out) out.close();
+				batch.printStats(System.err, "positions");
+			} else {
+				GameBoard start = batch.readPosition(input);
+				if(start == null) {
+					System.out.println("Enter a valid input file or board.");
+					return;
+				}
+				batch.selfPlay(start, Integer.parseInt(output), opponentDepth, randomMoves, System.out);
+				batch.printStats(System.err, "games");
+			}
+		} catch (FileNotFoundException e) {
+			System.out.println("Input file not found. Execute the command with valid input file.");
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
 	/*
 	This method decides the move to be played according to minimax algorithm with alpha-beta pruning
 	and depth-limited search. It validates if the action returned by the algorithm is valid or not and 
@@ -39,15 +219,17 @@ public class MaxConnect4 {
 	@param depth: resource limit for depth-limited search
 	*/
 	private void playOneMove(String inputFile, String outputFile, int depth) {
-		GameBoard startState = new GameBoard(inputFile);
+		GameBoard startState = new GameBoard(inputFile, geometry);
 		System.out.println("----Initial State----");
 		startState.printGameStateAndScore();
-		int action = minimaxDecision(startState, depth);
+		int action = chooseMove(startState, depth);
 		if(action==-1) exitGame();
-		GameBoard finalState = startState.getActionResult(action);
+		startState.play(action);
 		System.out.println("----Final State----");
-		finalState.printGameStateAndScore();
-		finalState.copyToFile(outputFile);
+		startState.printGameStateAndScore();
+		startState.copyToFile(outputFile);
+		if(table != null) System.out.println(table.statistics());
+		if(stats != null) System.out.println(stats.toJson(action, rootValue));
 	}
 	
 	/*
@@ -62,20 +244,23 @@ public class MaxConnect4 {
 	private void playInteractive(String inputFile, String nextPlayer, int depth) {
 		File input = new File(inputFile);
 		if(!input.exists()) writeEmptyBoardInFile(input);
-		GameBoard gameState = new GameBoard(inputFile);
+		GameBoard gameState = new GameBoard(inputFile, geometry);
 		gameState.printGameStateAndScore();
 		boolean humanNext = (nextPlayer.equals("human-next")) ? true : false;
 		while(!gameState.isTerminalState()) {
 			int action = -1;
 			if(humanNext) {
 				action = promptHumanForAction(gameState);
-				gameState = gameState.getActionResult(action);
+				gameState.play(action);
 				gameState.copyToFile("human.txt");
 				humanNext = false;
 			} else {
-				action = minimaxDecision(gameState, depth);
-				gameState = gameState.getActionResult(action);
+				action = chooseMove(gameState, depth);
+				gameState.play(action);
 				gameState.copyToFile("computer.txt");
+				// The table is kept for the next move, so the statistics add up over the game
+				if(table != null) System.out.println(table.statistics());
+				if(stats != null) System.out.println(stats.toLine());
 				humanNext = true;
 			}
 			gameState.printGameStateAndScore();
@@ -83,6 +268,21 @@ public class MaxConnect4 {
 		exitGame();
 	}
 	
+//	Searches the move of the computer to the depth, on one thread or more, or for the time budget if there is one
+	private int chooseMove(GameBoard state, int depth) {
+		long hits = bookHits;
+		int action;
+		if(timeBudget == 0 && parallel != null) action = parallel.minimaxDecision(state, depth);
+		else if(timeBudget == 0) action = minimaxDecision(state, depth);
+		else {
+			long start = System.nanoTime();
+			action = iterativeDeepening(state, depth, timeBudget);
+			if(bookHits == hits) System.out.println("Searched to depth " + completedDepth + " in " + (System.nanoTime() - start) / 1000000 + " ms");
+		}
+		if(bookHits > hits || parallel != null && parallel.bookHit) System.out.println("Move taken from the opening book");
+		return action;
+	}
+	
 //	Prompts the user for a valid input until a valid move is obtained
 	private int promptHumanForAction(GameBoard gameState) {
 		Scanner sc = new Scanner(System.in);
@@ -98,12 +298,12 @@ public class MaxConnect4 {
 //	Create an input file with empty board state, when the input file entered as argument in
 //	interactive mode does not exist.
 	private void writeEmptyBoardInFile(File input) {
-		String emptyEntry = "0000000";
+		String emptyEntry = new String(geometry.emptyBoard()[0]);
 		FileOutputStream fos = null;
 		try {
 			fos = new FileOutputStream(input, true);
 			input.createNewFile();
-			for(int i=0;i<6;i++) {
+			for(int i=0;i<geometry.rows;i++) {
 				fos.write(emptyEntry.getBytes());
 				fos.write("\r\n".getBytes());
 			}
@@ -119,60 +319,311 @@ public class MaxConnect4 {
 		}
 	}
 
-	/*The method returns an actions calculated using minimax algorithm with alpha-beta pruning and depth-limited search
+	/*The method returns an actions calculated using minimax algorithm with alpha-beta pruning and depth-limited search.
+	The search plays and takes back its moves on a SearchBoard, and the values are returned as ints with the move chosen at
+	the root kept in rootAction, so no object is created while searching.
+	Positions already in the transposition table are not searched again if they were searched at least as deep and the
+	stored value, or bound, decides the node. The other moves are tried in the order of MoveOrdering, or in column order
+	with the table move first if ordering is off. The root always tries its moves in column order, so the move chosen
+	is the same whatever the order below it.
 	@param state: input game state
 	@param depth: resource limit for depth-limited search
 	@return action with max utility value
 	*/
-	private int minimaxDecision(GameBoard state, int depth) {
-		int[] max = getMaxValue(state, state.nextPlayer, -1, Integer.MIN_VALUE, Integer.MAX_VALUE, depth);
-//		System.out.println("Utility: " + max[0] + " Action: " + max[1]);
-		return max[1];
+	int minimaxDecision(GameBoard state, int depth) {
+		SearchBoard board = state.toSearchBoard();
+		int move = bookMove(board, depth);
+		if(move != -1) return move;
+		return minimaxDecision(board, depth);
+	}
+	
+//	Searches the board without looking it up in the opening book, to the end of the game if few cells are left
+	int minimaxDecision(SearchBoard board, int depth) {
+		startDecision();
+		iterative = false;
+		depth = searchDepth(board, depth);
+		if(stats != null) stats.startIteration(depth, nodeCount);
+		rootValue = search(board, depth);
+		if(stats != null) stats.endIteration(nodeCount, false);
+		return rootAction;
+	}
+	
+	/*
+	The move of the opening book for the board, -1 if the board is not in the book or the book was searched less deep
+	than the depth asked for. The book only has positions of the standard board.
+	*/
+	int bookMove(SearchBoard board, int depth) {
+		if(book == null || book.depth < depth || !(board instanceof BitBoard)) return -1;
+		int index = book.find((BitBoard) board);
+		if(index == -1) return -1;
+		nodeCount = 0;
+		bookHits++;
+		if(stats != null) {
+			stats.clear();
+			stats.bookMove = true;
+		}
+		rootValue = book.value(index);
+		return book.move(index);
+	}
+	
+	/*
+	Endgame: once at most endgameCells cells are empty, the board is searched to the end of the game, which gives the
+	exact value of every move instead of the values of evalValue at the depth limit. Nodes searched to the end are cut
+	off by the bounds of their final score, see exactBound.
+	*/
+	int searchDepth(SearchBoard board, int depth) {
+		int empty = board.emptyCount();
+		return empty <= endgameCells ? Math.max(depth, empty) : depth;
+	}
+	
+	/*
+	Iterative deepening: searches to depth 1, 2, 3 and so on until the time budget is used up, and returns the move
+	of the deepest search which completed. A search still running when the time is up is abandoned. The first search
+	always completes, so there is always a move. Every search tries the principal variation of the one before first,
+	and all of them share the killer moves, history scores and the transposition table; the root is ordered as well.
+	A new search is not started when half of the budget is gone, as it would most likely not complete.
+	@param state: input game state
+	@param maxDepth: the deepest search to run
+	@param budgetMillis: time for the move in milliseconds
+	@return action of the deepest completed search
+	*/
+	int iterativeDeepening(GameBoard state, int maxDepth, long budgetMillis) {
+		SearchBoard board = state.toSearchBoard();
+		int move = bookMove(board, maxDepth);
+		if(move != -1) return move;
+		startDecision();
+		iterative = true;
+		long start = System.nanoTime();
+		long budget = budgetMillis * 1000000;
+		int action = -1;
+		// No search can go deeper than the number of empty cells
+		maxDepth = Math.min(searchDepth(board, maxDepth), board.emptyCount());
+		for(int depth=1;depth<=Math.max(1, maxDepth);depth++) {
+			if(stats != null) stats.startIteration(depth, nodeCount);
+			int value = search(board, depth);
+			if(stats != null) stats.endIteration(nodeCount, aborted);
+			if(aborted) break;
+			action = rootAction;
+			rootValue = value;
+			completedDepth = depth;
+			previousPvLength = pvLength[0];
+			System.arraycopy(pv[0], 0, previousPv, 0, previousPvLength);
+			// From now on the search may be abandoned
+			deadline = start + budget;
+			if(System.nanoTime() - start > budget / 2) break;
+		}
+		deadline = Long.MAX_VALUE;
+		return action;
+	}
+	
+	private void startDecision() {
+		nodeCount = 0;
+		completedDepth = 0;
+		previousPvLength = 0;
+		deadline = Long.MAX_VALUE;
+		order.clear();
+		if(table != null) table.nextSearch();
+		if(stats != null) stats.clear();
+	}
+	
+	/*
+	Searches the position after the column is played at the root, with the window from alpha up, and returns its value
+	for the player at the root. ParallelSearch uses it to search the moves of the root on several threads; it starts the
+	search of the table itself.
+	*/
+	int searchRootMove(SearchBoard board, int column, int alpha, int depth) {
+		nodeCount = 0;
+		previousPvLength = 0;
+		deadline = Long.MAX_VALUE;
+		order.clear();
+		iterative = false;
+		rootDepth = depth;
+		aborted = false;
+		followPv = false;
+		int maxPlayer = board.next();
+		board.play(column);
+		int value = getMinValue(board, maxPlayer, alpha, Integer.MAX_VALUE, depth-1);
+		board.undo();
+		return value;
+	}
+	
+	private int search(SearchBoard board, int depth) {
+		rootDepth = depth;
+		rootAction = -1;
+		aborted = false;
+		followPv = previousPvLength > 0;
+		return getMaxValue(board, board.next(), Integer.MIN_VALUE, Integer.MAX_VALUE, depth);
 	}
 	
 //	The method forms part of the minimax algorithm
-	private int[] getMaxValue(GameBoard state, Player maxPlayer, int action, int alpha, int beta, int depth) {
-		if(state.isTerminalState()) return new int[] {state.getUtility(maxPlayer), action};
+	private int getMaxValue(SearchBoard state, int maxPlayer, int alpha, int beta, int depth) {
+		nodeCount++;
+		if(timeIsUp()) return 0;
+		int ply = rootDepth - depth;
+		pvLength[ply] = ply;
+		if(stats != null) stats.nodes[ply]++;
+		if(state.isTerminalState()) {
+			if(stats != null) stats.terminalHits++;
+			return state.getUtility(maxPlayer);
+		}
 		if(depth > 0) {
+			// The root has to choose a move, so it is always searched
+			int bound = ply == 0 ? NO_BOUND : exactBound(state, maxPlayer, alpha, beta, depth);
+			if(bound != NO_BOUND) return bound;
+			long entry = table == null || ply == 0 ? 0 : table.probe(state.hash());
+			if(decides(entry, maxPlayer, alpha, beta, depth)) return valueOf(entry, maxPlayer);
+			int count = orderMoves(state, ply, TranspositionTable.move(entry));
+			int[] moves = order.moves[ply];
+			int startAlpha = alpha;
 			int maxVal = Integer.MIN_VALUE;
-			for(int i=0;i<7;i++) {
-//			System.out.println("Executing max for i= " + i + " isValid: " + state.isValidMove(i));
-				if(state.isValidMove(i)) {
-					int minVal = getMinValue(state.getActionResult(i), maxPlayer, action, alpha, beta, depth-1);
-					if(minVal > maxVal) {
-						maxVal = minVal;
-						action = i;
-					}
-					if(maxVal >= beta) return new int[] {maxVal, action};
-					alpha = Math.max(alpha, maxVal);
+			int best = -1;
+			for(int n=0;n<count;n++) {
+				int i = moves[n];
+				state.play(i);
+				int minVal = getMinValue(state, maxPlayer, alpha, beta, depth-1);
+				state.undo();
+				followPv = false;
+				if(minVal > maxVal) {
+					maxVal = minVal;
+					best = i;
+					updatePv(ply, i);
+					if(ply == 0) rootAction = i;
+				}
+				if(maxVal >= beta) {
+					order.cutoff(state.next(), ply, i, depth);
+					if(stats != null) stats.cutoff(true, n);
+					break;
 				}
+				alpha = Math.max(alpha, maxVal);
 			}
-			return new int[] {maxVal, action};
+			store(state, maxPlayer, startAlpha, beta, depth, maxVal, best);
+			return maxVal;
 		}
 		else {
-			return new int[] {state.evalValue(maxPlayer), action};
+			if(stats != null) stats.evalCalls++;
+			return state.evalValue(maxPlayer);
 		}
 	}
 	
 //	The method forms part of the minimax algorithm
-	private int getMinValue(GameBoard state, Player maxPlayer, int action, int alpha, int beta, int depth) {
-		if(state.isTerminalState()) return state.getUtility(maxPlayer);
+	private int getMinValue(SearchBoard state, int maxPlayer, int alpha, int beta, int depth) {
+		nodeCount++;
+		if(timeIsUp()) return 0;
+		int ply = rootDepth - depth;
+		pvLength[ply] = ply;
+		if(stats != null) stats.nodes[ply]++;
+		if(state.isTerminalState()) {
+			if(stats != null) stats.terminalHits++;
+			return state.getUtility(maxPlayer);
+		}
 		int minVal = Integer.MAX_VALUE;
 		if(depth > 0) {
-			for(int i=0;i<7;i++) {
-//				System.out.println("Executing min for i= " + i + " isValid: " + state.isValidMove(i));
-				if(state.isValidMove(i)) {
-					minVal = Math.min(minVal, getMaxValue(state.getActionResult(i), maxPlayer, action, alpha, beta, depth-1)[0]);
-					if(minVal <= alpha) return minVal;
-					beta = Math.min(beta, minVal);
+			int bound = exactBound(state, maxPlayer, alpha, beta, depth);
+			if(bound != NO_BOUND) return bound;
+			long entry = table == null ? 0 : table.probe(state.hash());
+			if(decides(entry, maxPlayer, alpha, beta, depth)) return valueOf(entry, maxPlayer);
+			int count = orderMoves(state, ply, TranspositionTable.move(entry));
+			int[] moves = order.moves[ply];
+			int startBeta = beta;
+			int best = -1;
+			for(int n=0;n<count;n++) {
+				int i = moves[n];
+				state.play(i);
+				int maxVal = getMaxValue(state, maxPlayer, alpha, beta, depth-1);
+				state.undo();
+				followPv = false;
+				if(maxVal < minVal) {
+					minVal = maxVal;
+					best = i;
+					updatePv(ply, i);
+				}
+				if(minVal <= alpha) {
+					order.cutoff(state.next(), ply, i, depth);
+					if(stats != null) stats.cutoff(false, n);
+					break;
 				}
+				beta = Math.min(beta, minVal);
 			}
+			store(state, maxPlayer, alpha, startBeta, depth, minVal, best);
 			return minVal;
 		} else {
+			if(stats != null) stats.evalCalls++;
 			return state.evalValue(maxPlayer);
 		}
 	}
 	
+	/*
+	A node searched to the end of the game ends with a score between the current scores plus all the quadruples the
+	max player can still complete, and the current scores plus all the quadruples the other player can still complete.
+	If the upper bound is at most alpha or the lower bound at least beta the node is cut off, and if the bounds are
+	equal they are its value. Returns NO_BOUND if the node has to be searched.
+	*/
+	private int exactBound(SearchBoard state, int maxPlayer, int alpha, int beta, int depth) {
+		if(depth < state.emptyCount()) return NO_BOUND;
+		int utility = state.getUtility(maxPlayer);
+		int upper = utility + state.open(maxPlayer);
+		int lower = utility - state.open(maxPlayer ^ 1);
+		if(upper <= alpha || upper == lower) return upper;
+		if(lower >= beta) return lower;
+		return NO_BOUND;
+	}
+	
+//	Orders the valid moves of the node into order.moves[ply] and returns their number
+	private int orderMoves(SearchBoard state, int ply, int tableMove) {
+		int pvMove = followPv && ply < previousPvLength ? previousPv[ply] : -1;
+		if(pvMove == -1) followPv = false;
+		if(!ordering || ply == 0 && !iterative) return order.columns(state, ply, tableMove);
+		return order.order(state, ply, pvMove, tableMove);
+	}
+	
+//	The best line from the node starts with the move and goes on with the best line from the child it leads to
+	private void updatePv(int ply, int move) {
+		int length = pvLength[ply+1];
+		pv[ply][ply] = move;
+		System.arraycopy(pv[ply+1], ply+1, pv[ply], ply+1, length - ply - 1);
+		pvLength[ply] = Math.max(length, ply + 1);
+	}
+	
+//	Looks at the clock every 1024 nodes. Once the time is up every node returns at once, and the search is abandoned.
+	private boolean timeIsUp() {
+		if((nodeCount & 1023) == 0 && deadline != Long.MAX_VALUE && System.nanoTime() > deadline) aborted = true;
+		return aborted;
+	}
+	
+	/*
+	Whether the table entry of a node searched at least to the depth gives the value of the node without searching it:
+	an exact value always does, a lower bound does if it is at least beta, an upper bound if it is at most alpha.
+	*/
+	private boolean decides(long entry, int maxPlayer, int alpha, int beta, int depth) {
+		if(entry == 0 || TranspositionTable.depth(entry) < depth) return false;
+		int value = valueOf(entry, maxPlayer);
+		int bound = TranspositionTable.bound(entry);
+		// The values are stored for player 1, so the bounds swap for player 2
+		if(maxPlayer == 1 && bound != TranspositionTable.EXACT) bound ^= TranspositionTable.LOWER ^ TranspositionTable.UPPER;
+		if(bound == TranspositionTable.EXACT || bound == TranspositionTable.LOWER && value >= beta
+				|| bound == TranspositionTable.UPPER && value <= alpha) {
+			table.cutoffs++;
+			return true;
+		}
+		return false;
+	}
+	
+	private static int valueOf(long entry, int maxPlayer) {
+		int value = TranspositionTable.value(entry);
+		return maxPlayer == 0 ? value : -value;
+	}
+	
+//	Stores the value of a node searched with the window from alpha to beta in the table, as a bound if it is outside
+	private void store(SearchBoard state, int maxPlayer, int alpha, int beta, int depth, int value, int best) {
+		if(table == null || aborted) return;
+		int bound = value <= alpha ? TranspositionTable.UPPER : value >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+		if(maxPlayer == 1) {
+			value = -value;
+			if(bound != TranspositionTable.EXACT) bound ^= TranspositionTable.LOWER ^ TranspositionTable.UPPER;
+		}
+		table.store(state.hash(), depth, bound, value, best);
+	}
+	
 	// This method prints a message and exits the game.
 	private void exitGame() {
 		System.out.println("The game board is full. Exiting the program.");
@@ -0,0 +1,224 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+MaxConnect4Batch searches many positions in one process, so the JVM starts and the JIT warms up only once. Every worker
+thread keeps its own MaxConnect4 and transposition table, which are reused for all the positions the thread searches.
+Values in the table may come from a deeper search of the same position for another input, so the table can make a
+value better informed than the one a single one-move run finds; without a table the results are the same. The opening
+book is mapped once and shared by all the threads.
+
+evaluate reads one position per line, either the name of a board file or the board itself in the format of the board
+files, the rows from the top down and then the next player, separated by whitespace or '/', for example
+	0000000/0000000/0000000/0001000/0021200/1211212/2
+for the standard board, and prints "position move value" for every line in the order of the input, where value is the minimax value of the
+move for the player to move, or "position invalid" for a position which can not be read. A full board has move -1.
+
+selfPlay plays games between two depths: the depth given for the batch and the opponent depth. The games start from
+the same position with a few random moves, so that they differ, and the two depths take turns moving first. The score
+of every game and the number of games each depth won are printed. Throughput and the p50/p99 time of a position or a
+game are reported on stderr.
+*/
+public class MaxConnect4Batch {
+	private final int depth;
+	private final int threads;
+	// Time for every move in milliseconds, 0 to search to the full depth
+	private final long timeBudget;
+	private final ThreadLocal<MaxConnect4> engines;
+	// Size of the board of every position
+	private final Geometry geometry;
+	// Time of the positions or games in nanoseconds
+	private final LatencyHistogram latencies = new LatencyHistogram();
+	private long startNanos;
+
+	public MaxConnect4Batch(int depth, int threads, long timeBudget, final int tableMegabytes, final int replacement,
+			final OpeningBook book, final int endgameCells, Geometry geometry) {
+		this.depth = depth;
+		this.geometry = geometry;
+		this.threads = threads;
+		this.timeBudget = timeBudget;
+		this.engines = new ThreadLocal<MaxConnect4>() {
+			protected MaxConnect4 initialValue() {
+				MaxConnect4 engine = new MaxConnect4();
+				if(tableMegabytes > 0) engine.table = new TranspositionTable(tableMegabytes, replacement);
+				engine.book = book;
+				engine.endgameCells = endgameCells;
+				return engine;
+			}
+		};
+	}
+
+//	Searches one position, the name of a board file or the board itself, with the MaxConnect4 of the current thread
+	public String evaluate(String position) {
+		long start = System.nanoTime();
+		GameBoard state = readPosition(position);
+		String output;
+		if(state == null) output = position + " invalid";
+		else if(state.isTerminalState()) output = position + " -1 " + state.getUtility(state.nextPlayer);
+		else {
+			MaxConnect4 engine = engines.get();
+			int move = decide(engine, state, depth);
+			output = position + " " + move + " " + engine.rootValue;
+		}
+		latencies.record(System.nanoTime() - start);
+		return output;
+	}
+
+	private int decide(MaxConnect4 engine, GameBoard state, int depth) {
+		if(timeBudget > 0) return engine.iterativeDeepening(state, depth, timeBudget);
+		return engine.minimaxDecision(state, depth);
+	}
+
+//	Reads a position given as a board or as the name of a board file, null if it is neither
+	GameBoard readPosition(String position) {
+		GameBoard state = GameBoard.fromString(position, geometry);
+		if(state != null) return state;
+		File file = new File(position);
+		if(!file.isFile()) return null;
+		StringBuilder sb = new StringBuilder();
+		try {
+			BufferedReader br = new BufferedReader(new FileReader(file));
+			try {
+				String line;
+				while((line=br.readLine()) != null) sb.append(line).append('\n');
+			} finally {
+				br.close();
+			}
+		} catch (IOException e) {
+			return null;
+		}
+		return GameBoard.fromString(sb.toString(), geometry);
+	}
+
+	/*
+	Reads the positions from the reader and prints the results in the same order. At most a few positions per thread are
+	in flight at any time, so the memory used does not grow with the number of positions.
+	*/
+	public void evaluate(Reader positions, PrintStream out) throws IOException {
+		startNanos = System.nanoTime();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		Deque<Future<String>> pending = new ArrayDeque<Future<String>>();
+		BufferedReader br = new BufferedReader(positions);
+		try {
+			String line;
+			while((line=br.readLine()) != null) {
+				if(line.trim().isEmpty()) continue;
+				final String position = line.trim();
+				pending.add(pool.submit(new Callable<String>() {
+					public String call() {
+						return evaluate(position);
+					}
+				}));
+				if(pending.size() >= threads * 16) out.println(pending.poll().get());
+			}
+			while(!pending.isEmpty()) out.println(pending.poll().get());
+			out.flush();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+//	Evaluates the positions of a file, or of stdin if the file name is "-"
+	public void evaluate(String positionFile, PrintStream out) throws IOException {
+		Reader reader = positionFile.equals("-") ? new InputStreamReader(System.in) : new FileReader(positionFile);
+		try {
+			evaluate(reader, out);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/*
+	Plays the games on the worker threads and prints their results in order, then how many games each depth won.
+	@param start: the position every game starts from
+	@param games: number of games
+	@param opponentDepth: depth of the player which does not use the depth of the batch
+	@param randomMoves: number of random moves played before the searches take over
+	*/
+	public void selfPlay(final GameBoard start, int games, final int opponentDepth, final int randomMoves, PrintStream out) throws IOException {
+		startNanos = System.nanoTime();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		Deque<Future<int[]>> pending = new ArrayDeque<Future<int[]>>();
+		// Games won with the depth of the batch, won with the opponent depth, and drawn
+		int[] results = new int[3];
+		try {
+			for(int g=0;g<games;g++) {
+				final int game = g;
+				pending.add(pool.submit(new Callable<int[]>() {
+					public int[] call() {
+						return playGame(start.copy(), game, opponentDepth, randomMoves);
+					}
+				}));
+				if(pending.size() >= threads * 4) printGame(pending.poll().get(), opponentDepth, results, out);
+			}
+			while(!pending.isEmpty()) printGame(pending.poll().get(), opponentDepth, results, out);
+			out.println(String.format("depth %d won %d, depth %d won %d, drawn %d", depth, results[0], opponentDepth,
+					results[1], results[2]));
+			out.flush();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/*
+	Plays one game to the end. In even games the player to move at the start searches to the depth of the batch, in odd
+	games to the opponent depth. Returns the game, the player using the depth of the batch, 1 or 2, and the scores.
+	*/
+	private int[] playGame(GameBoard state, int game, int opponentDepth, int randomMoves) {
+		long start = System.nanoTime();
+		MaxConnect4 engine = engines.get();
+		Random random = new Random(game);
+		int first = state.nextPlayer.name.equals("1") ? 1 : 2;
+		int batchPlayer = game % 2 == 0 ? first : 3 - first;
+		for(int m=0;!state.isTerminalState();m++) {
+			int action;
+			if(m < randomMoves) {
+				do action = random.nextInt(geometry.columns);
+				while(!state.isValidMove(action));
+			} else {
+				int player = state.nextPlayer.name.equals("1") ? 1 : 2;
+				action = decide(engine, state, player == batchPlayer ? depth : opponentDepth);
+			}
+			state.play(action);
+		}
+		latencies.record(System.nanoTime() - start);
+		return new int[] {game, batchPlayer, state.player1.score, state.player2.score};
+	}
+
+	private void printGame(int[] game, int opponentDepth, int[] results, PrintStream out) {
+		int batchScore = game[1] == 1 ? game[2] : game[3];
+		int opponentScore = game[1] == 1 ? game[3] : game[2];
+		if(batchScore > opponentScore) results[0]++;
+		else if(batchScore < opponentScore) results[1]++;
+		else results[2]++;
+		out.println(String.format("game %d: player 1 depth %d, player 2 depth %d, score %d-%d", game[0],
+				game[1] == 1 ? depth : opponentDepth, game[1] == 1 ? opponentDepth : depth, game[2], game[3]));
+	}
+
+//	Prints the number of positions or games done, the throughput and their p50/p99 time
+	public void printStats(PrintStream out, String name) {
+		String summary = latencies.summary(name, startNanos);
+		if(summary != null) out.println(summary);
+	}
+}
@@ -0,0 +1,443 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+/*
+Benchmarks and checks for the MaxConnect4 search. Usage:
+1) MaxConnect4Benchmark scores <games>: plays random games in place with GameBoard.play and compares the scores and
+   evalValue which GameBoard computes by matching strings in the char[][] board with the incremental ones of BitBoard
+   after every move. Every move is also taken back and played again to check undo, and the Zobrist hash kept up to date
+   by play and undo is compared with the hash of a new BitBoard of the same position.
+2) MaxConnect4Benchmark search <input> <depth>: runs the original minimax on GameBoard objects and the BitBoard minimax
+   of MaxConnect4 on the same input, in column order, with move ordering and with move ordering and a transposition
+   table, checks that all choose the same move and prints nodes per second, the bytes allocated by the search, the
+   number of garbage collections during it and the hit rate of the table.
+3) MaxConnect4Benchmark game <input> <depth> <megabytes>: plays the game to the end with the same search for both
+   players, once with a new transposition table for every move and once with one table kept for the whole game, and
+   prints the nodes searched and the hit rates of both.
+4) MaxConnect4Benchmark deepening <input> <milliseconds>: plays the game to the end with iterative deepening for both
+   players and the given time for every move, and prints the depths reached and the longest time any move took.
+5) MaxConnect4Benchmark parallel <input> <depth>: checks that ParallelSearch chooses the same moves as the sequential
+   search on positions of random games, then searches the input to the depth with 1, 2, 4, 8 and 16 threads and prints
+   the time and speedup over the sequential search for each.
+6) MaxConnect4Benchmark endgame <cells> <positions>: solves positions of random games with the given number of empty
+   cells to the end and prints the time and nodes per position. With at most 10 cells the moves are checked against
+   the original minimax searched to the end of the game.
+7) MaxConnect4Benchmark book <file> <games>: looks up the positions of random games in the opening book, as long as
+   they are in it, and prints the number of lookups and the time per lookup.
+8) MaxConnect4Benchmark sizes <games> <depth>: plays random games on every board of SIZES and compares the scores,
+   evalValue, open lines and hash LineBoard keeps up to date with the ones GameBoard computes by matching strings, and
+   on the standard board with BitBoard. Then searches the empty board and a board a third full of every size to the
+   depth and prints nodes per second and the bytes allocated, the standard board both on a BitBoard and a LineBoard.
+MaxConnect4Suite times the single operations of the game, scoring, evaluation, moves and searches, on fixed boards.
+*/
+public class MaxConnect4Benchmark {
+	static final long SEED = 5360;
+
+	public static void main(String[] args) {
+		if(args.length == 2 && args[0].equals("scores")) {
+			compareScores(Integer.parseInt(args[1]));
+		} else if(args.length == 3 && args[0].equals("search")) {
+			compareSearch(args[1], Integer.parseInt(args[2]));
+		} else if(args.length == 4 && args[0].equals("game")) {
+			compareTables(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+		} else if(args.length == 3 && args[0].equals("deepening")) {
+			timeGame(args[1], Long.parseLong(args[2]));
+		} else if(args.length == 3 && args[0].equals("parallel")) {
+			compareThreads(args[1], Integer.parseInt(args[2]));
+		} else if(args.length == 3 && args[0].equals("endgame")) {
+			solveEndgames(Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+		} else if(args.length == 3 && args[0].equals("book")) {
+			lookUpBook(args[1], Integer.parseInt(args[2]));
+		} else if(args.length == 3 && args[0].equals("sizes")) {
+			compareSizes(Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+		} else {
+			System.out.println("Enter valid command arguments.");
+		}
+	}
+
+	static void compareScores(int games) {
+		Random random = new Random(SEED);
+		int positions = 0, mismatches = 0;
+		for(int g=0;g<games;g++) {
+			char[][] board = Geometry.STANDARD.emptyBoard();
+			// Some games start from a board with holes, which the input files allow
+			if(g % 10 == 0) board[random.nextInt(6)][random.nextInt(7)] = '1';
+			GameBoard state = new GameBoard(board, "1");
+			BitBoard played = state.toBitBoard();
+			while(!state.isTerminalState()) {
+				int column = random.nextInt(7);
+				if(!state.isValidMove(column)) continue;
+				state.play(column);
+				played.play(column);
+				played.undo();
+				played.play(column);
+				String before = state.getGameStateAsString();
+				state.undo();
+				state.play(column);
+				positions++;
+				BitBoard bits = state.toBitBoard();
+				int[] expected = state.gameScore(GameBoard.targetString);
+				if(expected[0] != state.player1.score || expected[1] != state.player2.score || !before.equals(state.getGameStateAsString())
+						|| state.evalValue(state.player1) != bits.evalValue(0) || state.evalValue(state.player2) != bits.evalValue(1)
+						|| played.hash != bits.hash) {
+					mismatches++;
+					if(mismatches <= 5) System.out.println("Mismatch:\n" + state.getGameStateAsString());
+				}
+			}
+		}
+		System.out.println(positions + " positions compared, " + mismatches + " mismatches");
+	}
+
+	static void compareSearch(String inputFile, int depth) {
+		GameBoard state = new GameBoard(inputFile);
+		LegacySearch legacy = new LegacySearch();
+		long[] before = counters();
+		int legacyAction = legacy.minimaxDecision(state, depth);
+		long[] legacyCounters = since(before);
+		MaxConnect4 search = new MaxConnect4();
+		// The original search tries the columns in order
+		search.ordering = false;
+		// Warm up the JIT before measuring the faster search
+		search.minimaxDecision(state, Math.min(depth, 6));
+		before = counters();
+		int action = search.minimaxDecision(state, depth);
+		long[] searchCounters = since(before);
+		if(action != legacyAction) System.out.println("Different moves: " + legacyAction + " vs " + action);
+		if(legacy.nodeCount != search.nodeCount) System.out.println("Different node counts: " + legacy.nodeCount + " vs " + search.nodeCount);
+		report("GameBoard", legacy.nodeCount, legacyCounters);
+		report("BitBoard", search.nodeCount, searchCounters);
+		search.ordering = true;
+		search.minimaxDecision(state, Math.min(depth, 6));
+		before = counters();
+		action = search.minimaxDecision(state, depth);
+		searchCounters = since(before);
+		if(action != legacyAction) System.out.println("Different moves with ordering: " + legacyAction + " vs " + action);
+		report("Ordered", search.nodeCount, searchCounters);
+		search.table = new TranspositionTable(MaxConnect4.DEFAULT_TABLE_MEGABYTES, TranspositionTable.DEPTH);
+		search.minimaxDecision(state, Math.min(depth, 6));
+		search.table.clear();
+		before = counters();
+		action = search.minimaxDecision(state, depth);
+		searchCounters = since(before);
+		if(action != legacyAction) System.out.println("Different moves with the table: " + legacyAction + " vs " + action);
+		report("Table", search.nodeCount, searchCounters);
+		System.out.println(search.table.statistics());
+	}
+
+	static void compareThreads(String inputFile, int depth) {
+		Random random = new Random(SEED);
+		int positions = 0, mismatches = 0;
+		MaxConnect4 sequential = new MaxConnect4();
+		sequential.table = new TranspositionTable(MaxConnect4.DEFAULT_TABLE_MEGABYTES, TranspositionTable.DEPTH);
+		ParallelSearch parallel = new ParallelSearch(4, new TranspositionTable(MaxConnect4.DEFAULT_TABLE_MEGABYTES, TranspositionTable.DEPTH));
+		for(int g=0;g<20;g++) {
+			GameBoard state = new GameBoard(Geometry.STANDARD.emptyBoard(), "1");
+			// Values of deeper searches of the same positions in an earlier game would change the moves
+			sequential.table.clear();
+			parallel.table.clear();
+			while(!state.isTerminalState()) {
+				int expected = sequential.minimaxDecision(state, 6);
+				int action = parallel.minimaxDecision(state, 6);
+				positions++;
+				if(action != expected) {
+					mismatches++;
+					if(mismatches <= 5) System.out.println("Mismatch " + expected + " vs " + action + ":\n" + state.getGameStateAsString());
+				}
+				int column = random.nextInt(7);
+				while(!state.isValidMove(column)) column = random.nextInt(7);
+				state.play(column);
+			}
+		}
+		parallel.shutdown();
+		System.out.println(positions + " positions compared, " + mismatches + " different moves");
+		GameBoard state = new GameBoard(inputFile);
+		sequential.minimaxDecision(state, Math.min(depth, 8));
+		sequential.table.clear();
+		long start = System.nanoTime();
+		int expected = sequential.minimaxDecision(state, depth);
+		long time = System.nanoTime() - start;
+		System.out.println(String.format("%-12s move %d, %d nodes in %d ms", "Sequential:", expected, sequential.nodeCount, time / 1000000));
+		int[] threads = {1, 2, 4, 8, 16};
+		for(int t:threads) {
+			parallel = new ParallelSearch(t, new TranspositionTable(MaxConnect4.DEFAULT_TABLE_MEGABYTES, TranspositionTable.DEPTH));
+			parallel.minimaxDecision(state, Math.min(depth, 8));
+			parallel.table.clear();
+			start = System.nanoTime();
+			int action = parallel.minimaxDecision(state, depth);
+			long parallelTime = System.nanoTime() - start;
+			parallel.shutdown();
+			System.out.println(String.format("%-12s move %d%s, %d nodes in %d ms, speedup %.2f", t + " threads:", action,
+					action == expected ? "" : " (different)", parallel.nodeCount, parallelTime / 1000000, (double) time / parallelTime));
+		}
+		System.out.println(Runtime.getRuntime().availableProcessors() + " processors available");
+	}
+
+	static void solveEndgames(int cells, int positions) {
+		Random random = new Random(SEED);
+		MaxConnect4 solver = new MaxConnect4();
+		solver.table = new TranspositionTable(MaxConnect4.DEFAULT_TABLE_MEGABYTES, TranspositionTable.DEPTH);
+		solver.endgameCells = cells;
+		LegacySearch legacy = new LegacySearch();
+		long nodes = 0, total = 0, longest = 0;
+		int mismatches = 0;
+		for(int p=0;p<positions;p++) {
+			GameBoard state = new GameBoard(Geometry.STANDARD.emptyBoard(), "1");
+			while(state.toBitBoard().emptyCount() > cells) {
+				int column = random.nextInt(7);
+				if(state.isValidMove(column)) state.play(column);
+			}
+			solver.table.clear();
+			long start = System.nanoTime();
+			int action = solver.minimaxDecision(state, 1);
+			long time = System.nanoTime() - start;
+			total += time;
+			longest = Math.max(longest, time);
+			nodes += solver.nodeCount;
+			if(cells <= 10 && legacy.minimaxDecision(state, cells) != action) {
+				mismatches++;
+				if(mismatches <= 5) System.out.println("Mismatch:\n" + state.getGameStateAsString());
+			}
+		}
+		System.out.println(String.format("%d positions with %d empty cells: %.0f nodes and %.3f ms per position, longest %.3f ms%s",
+				positions, cells, (double) nodes / positions, total / 1e6 / positions, longest / 1e6,
+				cells <= 10 ? ", " + mismatches + " different moves" : ""));
+	}
+
+	static void lookUpBook(String file, int games) {
+		OpeningBook book;
+		try {
+			book = OpeningBook.load(file);
+		} catch (java.io.IOException e) {
+			throw new IllegalStateException(e);
+		}
+		if(book == null) {
+			System.out.println("Not an opening book: " + file);
+			return;
+		}
+		Random random = new Random(SEED);
+		long lookups = 0, time = 0;
+		for(int g=0;g<games;g++) {
+			BitBoard board = new BitBoard(Geometry.STANDARD.emptyBoard(), 0);
+			// The player following the book plays its moves, the other one plays at random
+			int bookPlayer = g % 2;
+			while(!board.isTerminalState()) {
+				if(board.next == bookPlayer) {
+					long start = System.nanoTime();
+					int index = book.find(board);
+					time += System.nanoTime() - start;
+					lookups++;
+					if(index == -1) break;
+					board.play(book.move(index));
+				} else {
+					int column = random.nextInt(7);
+					if(board.isValidMove(column)) board.play(column);
+				}
+			}
+		}
+		System.out.println(String.format("%d positions, depth %d, %d lookups in %d games, %.2f us per lookup", book.size,
+				book.depth, lookups, games, time / 1e3 / lookups));
+	}
+
+	static void timeGame(String inputFile, long budget) {
+		GameBoard state = new GameBoard(inputFile);
+		MaxConnect4 search = new MaxConnect4();
+		search.table = new TranspositionTable(MaxConnect4.DEFAULT_TABLE_MEGABYTES, TranspositionTable.DEPTH);
+		StringBuilder depths = new StringBuilder();
+		long longest = 0, nodes = 0, total = 0;
+		int moves = 0;
+		while(!state.isTerminalState()) {
+			long start = System.nanoTime();
+			int action = search.iterativeDeepening(state, MaxConnect4.MAX_PLY, budget);
+			long time = System.nanoTime() - start;
+			longest = Math.max(longest, time);
+			total += time;
+			nodes += search.nodeCount;
+			moves++;
+			depths.append(' ').append(search.completedDepth);
+			state.play(action);
+		}
+		System.out.println("Depths:" + depths);
+		System.out.println(String.format("%d moves, %d nodes, %.1f ms per move, longest move %.1f ms for a budget of %d ms, final score %d-%d",
+				moves, nodes, total / 1e6 / moves, longest / 1e6, budget, state.player1.score, state.player2.score));
+	}
+
+	static void compareTables(String inputFile, int depth, int megabytes) {
+		for(int kept=0;kept<2;kept++) {
+			GameBoard state = new GameBoard(inputFile);
+			MaxConnect4 search = new MaxConnect4();
+			search.table = new TranspositionTable(megabytes, TranspositionTable.DEPTH);
+			long nodes = 0, probes = 0, hits = 0, cutoffs = 0;
+			long start = System.nanoTime();
+			while(!state.isTerminalState()) {
+				if(kept == 0) {
+					probes += search.table.probes;
+					hits += search.table.hits;
+					cutoffs += search.table.cutoffs;
+					search.table.clear();
+				}
+				state.play(search.minimaxDecision(state, depth));
+				nodes += search.nodeCount;
+			}
+			probes += search.table.probes;
+			hits += search.table.hits;
+			cutoffs += search.table.cutoffs;
+			System.out.println(String.format("%-16s %d nodes in %d ms, %.1f%% hits, %.1f%% cutoffs, final score %d-%d",
+					(kept == 0 ? "New table:" : "Kept table:"), nodes, (System.nanoTime() - start) / 1000000,
+					100.0 * hits / Math.max(1, probes), 100.0 * cutoffs / Math.max(1, probes), state.player1.score, state.player2.score));
+		}
+	}
+
+	// Rows, columns and connect of the boards of the sizes benchmark, from the standard board up to the largest variant
+	static final int[][] SIZES = {{6, 7, 4}, {7, 8, 4}, {8, 9, 4}, {8, 9, 5}, {9, 10, 5}};
+
+	static void compareSizes(int games, int depth) {
+		for(int[] size:SIZES) compareLineBoard(Geometry.of(size[0], size[1], size[2]), games);
+		for(int[] size:SIZES) {
+			Geometry geometry = Geometry.of(size[0], size[1], size[2]);
+			Random random = new Random(SEED);
+			for(int phase=0;phase<2;phase++) {
+				GameBoard state = new GameBoard(geometry.emptyBoard(), "1", geometry);
+				while(phase == 1 && state.toSearchBoard().emptyCount() > geometry.rows * geometry.columns * 2 / 3) {
+					int column = random.nextInt(geometry.columns);
+					if(state.isValidMove(column)) state.play(column);
+				}
+				String name = geometry + (phase == 0 ? ", empty" : ", third full");
+				timeSearch(name, state.toSearchBoard(), depth);
+				if(geometry.isStandard()) {
+					int next = state.nextPlayer.name.equals("1") ? 0 : 1;
+					timeSearch(name + ", LineBoard", new LineBoard(state.board, next, geometry), depth);
+				}
+			}
+		}
+	}
+
+	static void compareLineBoard(Geometry geometry, int games) {
+		Random random = new Random(SEED);
+		int positions = 0, mismatches = 0;
+		for(int g=0;g<games;g++) {
+			char[][] board = geometry.emptyBoard();
+			// Some games start from a board with holes, which the input files allow
+			if(g % 10 == 0) board[random.nextInt(geometry.rows)][random.nextInt(geometry.columns)] = '1';
+			GameBoard state = new GameBoard(board, "1", geometry);
+			LineBoard played = new LineBoard(state.board, 0, geometry);
+			while(!state.isTerminalState()) {
+				int column = random.nextInt(geometry.columns);
+				if(!state.isValidMove(column)) continue;
+				state.play(column);
+				played.play(column);
+				played.undo();
+				played.play(column);
+				String before = state.getGameStateAsString();
+				state.undo();
+				state.play(column);
+				positions++;
+				LineBoard line = new LineBoard(state.board, played.next(), geometry);
+				int[] expected = state.gameScore(geometry.targetString);
+				boolean same = expected[0] == played.score(0) && expected[1] == played.score(1)
+						&& expected[0] == state.player1.score && expected[1] == state.player2.score
+						&& before.equals(state.getGameStateAsString()) && played.hash() == line.hash()
+						&& state.evalValue(state.player1) == played.evalValue(0) && state.evalValue(state.player2) == played.evalValue(1)
+						&& played.open(0) == line.open(0) && played.open(1) == line.open(1);
+				if(geometry.isStandard()) {
+					BitBoard bits = state.toBitBoard();
+					same &= bits.open(0) == played.open(0) && bits.open(1) == played.open(1) && bits.evalValue(0) == played.evalValue(0);
+				}
+				if(!same) {
+					mismatches++;
+					if(mismatches <= 5) System.out.println("Mismatch on " + geometry + ":\n" + state.getGameStateAsString());
+				}
+			}
+		}
+		System.out.println(geometry + ": " + positions + " positions compared, " + mismatches + " mismatches");
+	}
+
+	static void timeSearch(String name, SearchBoard board, int depth) {
+		MaxConnect4 search = new MaxConnect4();
+		search.table = new TranspositionTable(MaxConnect4.DEFAULT_TABLE_MEGABYTES, TranspositionTable.DEPTH);
+		// Warm up the JIT before measuring
+		search.minimaxDecision(board, Math.min(depth, 6));
+		search.table.clear();
+		long[] before = counters();
+		search.minimaxDecision(board, depth);
+		report(name, search.nodeCount, since(before));
+	}
+
+	static void report(String name, long nodes, long[] counters) {
+		System.out.println(String.format("%-10s %d nodes in %d ms, %.0f nodes/s, %d bytes allocated, %d GCs", name + ":", 
+				nodes, counters[0] / 1000000, nodes / (counters[0] / 1e9), counters[1], counters[2]));
+	}
+
+//	Current time in nanoseconds, bytes allocated by this thread and number of garbage collections so far
+	static long[] counters() {
+		long collections = 0;
+		for(GarbageCollectorMXBean gc:ManagementFactory.getGarbageCollectorMXBeans()) collections += Math.max(0, gc.getCollectionCount());
+		long allocated = -1;
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if(threads instanceof com.sun.management.ThreadMXBean) {
+			allocated = ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return new long[] {System.nanoTime(), allocated, collections};
+	}
+
+	static long[] since(long[] before) {
+		long[] now = counters();
+		for(int i=0;i<now.length;i++) now[i] -= before[i];
+		return now;
+	}
+
+	// The minimax of MaxConnect4 before it moved to BitBoard, which creates a new GameBoard for every node
+	static class LegacySearch {
+		long nodeCount = 0;
+		// The position searched, whose player to move is the max player of every node
+		private GameBoard root;
+
+		int minimaxDecision(GameBoard state, int depth) {
+			nodeCount = 0;
+			root = state;
+			return getMaxValue(state, -1, Integer.MIN_VALUE, Integer.MAX_VALUE, depth)[1];
+		}
+
+		private int[] getMaxValue(GameBoard state, int action, int alpha, int beta, int depth) {
+			nodeCount++;
+			if(state.isTerminalState()) return new int[] {state.getUtility(root.nextPlayer), action};
+			if(depth > 0) {
+				int maxVal = Integer.MIN_VALUE;
+				for(int i=0;i<7;i++) {
+					if(state.isValidMove(i)) {
+						int minVal = getMinValue(state.getActionResult(i), action, alpha, beta, depth-1);
+						if(minVal > maxVal) {
+							maxVal = minVal;
+							action = i;
+						}
+						if(maxVal >= beta) return new int[] {maxVal, action};
+						alpha = Math.max(alpha, maxVal);
+					}
+				}
+				return new int[] {maxVal, action};
+			}
+			else {
+				return new int[] {state.evalValue(root.nextPlayer), action};
+			}
+		}
+
+		private int getMinValue(GameBoard state, int action, int alpha, int beta, int depth) {
+			nodeCount++;
+			if(state.isTerminalState()) return state.getUtility(root.nextPlayer);
+			int minVal = Integer.MAX_VALUE;
+			if(depth > 0) {
+				for(int i=0;i<7;i++) {
+					if(state.isValidMove(i)) {
+						minVal = Math.min(minVal, getMaxValue(state.getActionResult(i), action, alpha, beta, depth-1)[0]);
+						if(minVal <= alpha) return minVal;
+						beta = Math.min(beta, minVal);
+					}
+				}
+				return minVal;
+			} else {
+				return state.evalValue(root.nextPlayer);
+			}
+		}
+	}
+}
@@ -0,0 +1,163 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+MaxConnect4Suite measures the time and allocation of the single operations of the game over a fixed corpus of early,
+middle and late game boards, so that the numbers of two versions of the code can be compared:
+	gameScore, calculateAndAssignScore and evalValue of GameBoard, which match strings in the char[][] board
+	getActionResult for every valid column, the move generation of the original search
+	evalValue and play/undo of every valid column on a BitBoard
+	minimaxDecision to depth 4, 6, 8 and 10, without a transposition table so that every call searches, and without
+	the endgame solve, which would search the late boards to the end of the game whatever the depth
+Usage: MaxConnect4Suite [filter] [milliseconds]. Only the operations whose name contains the filter are run, all of
+them by default. Every operation is run for WARMUP iterations to let the JIT compile it and then for MEASURED
+iterations of the given length, 200 ms by default. Each line shows the mean time per call and its standard deviation
+over the measured iterations, the calls per second, the bytes allocated per call, read from the allocation counter of
+the thread, and the garbage collections during the measured iterations.
+*/
+public class MaxConnect4Suite {
+	static final int WARMUP = 3;
+	static final int MEASURED = 5;
+	// The corpus, two boards for each phase of the game, from random games after 4, 8, 18, 22, 32 and 36 moves
+	static final String[][] CORPUS = {
+		{"early", "0000000/0000000/0000000/0000000/0000001/1200002/1", "0000000/0000000/0000000/0000000/0222000/0112011/1"},
+		{"mid", "0000000/0000000/0200001/0210101/0122102/1212212/1", "0000000/0000000/2200220/1100111/2102222/2211111/1"},
+		{"late", "0001022/0022111/0022212/1021121/2021112/1221211/1", "0210102/1210202/1111102/2221122/1122212/2111122/1"}
+	};
+	// Results of the operations, so that the JIT can not leave the work out
+	static volatile long sink;
+
+	public static void main(String[] args) {
+		String filter = args.length > 0 ? args[0] : "";
+		long millis = args.length > 1 ? Long.parseLong(args[1]) : 200;
+		System.out.println(String.format("%-24s %-6s %14s %12s %14s %12s %5s", "operation", "phase", "us/call", "error",
+				"calls/s", "bytes/call", "GCs"));
+		for(Operation operation:operations()) {
+			if(!operation.name.contains(filter)) continue;
+			for(String[] phase:CORPUS) {
+				Position[] positions = new Position[phase.length - 1];
+				for(int i=1;i<phase.length;i++) positions[i-1] = new Position(GameBoard.fromString(phase[i]));
+				measure(operation, phase[0], positions, millis * 1000000);
+			}
+		}
+	}
+
+	static List<Operation> operations() {
+		List<Operation> operations = new ArrayList<Operation>();
+		operations.add(new Operation("gameScore") {
+			long run(Position p) {
+				int[] score = p.board.gameScore(GameBoard.targetString);
+				return score[0] + score[1];
+			}
+		});
+		operations.add(new Operation("calculateAndAssignScore") {
+			long run(Position p) {
+				long sum = 0;
+				for(String line:p.lines) sum += p.board.calculateAndAssignScore(line, GameBoard.targetString, new int[2])[0];
+				return sum;
+			}
+		});
+		operations.add(new Operation("GameBoard.evalValue") {
+			long run(Position p) {
+				return p.board.evalValue(p.board.nextPlayer);
+			}
+		});
+		operations.add(new Operation("getActionResult") {
+			long run(Position p) {
+				long sum = 0;
+				for(int c=0;c<7;c++) {
+					if(p.board.isValidMove(c)) sum += p.board.getActionResult(c).player1.score;
+				}
+				return sum;
+			}
+		});
+		operations.add(new Operation("BitBoard.evalValue") {
+			long run(Position p) {
+				return p.bits.evalValue(p.bits.next);
+			}
+		});
+		operations.add(new Operation("BitBoard.play/undo") {
+			long run(Position p) {
+				long sum = 0;
+				for(int c=0;c<BitBoard.COLUMNS;c++) {
+					if(!p.bits.isValidMove(c)) continue;
+					p.bits.play(c);
+					sum += p.bits.hash;
+					p.bits.undo();
+				}
+				return sum;
+			}
+		});
+		for(int depth=4;depth<=10;depth+=2) {
+			final int d = depth;
+			final MaxConnect4 engine = new MaxConnect4();
+			engine.endgameCells = 0;
+			operations.add(new Operation("minimaxDecision/" + depth) {
+				long run(Position p) {
+					return engine.minimaxDecision(p.board, d);
+				}
+			});
+		}
+		return operations;
+	}
+
+	/*
+	Runs the operation on the positions in turn for the warmup and the measured iterations and prints one line. The
+	operation is called in batches between two looks at the clock; the warmup grows the batch until it takes at least
+	a tenth of a millisecond, so that reading the clock does not count for cheap operations.
+	*/
+	static void measure(Operation operation, String phase, Position[] positions, long nanos) {
+		int batch = 1;
+		double[] times = new double[MEASURED];
+		long calls = 0, bytes = 0, collections = 0;
+		for(int iteration=0;iteration<WARMUP+MEASURED;iteration++) {
+			long sum = 0, count = 0;
+			long[] before = MaxConnect4Benchmark.counters();
+			long end = before[0] + nanos;
+			long now;
+			do {
+				long start = System.nanoTime();
+				for(int i=0;i<batch;i++) sum += operation.run(positions[(int) (count + i) % positions.length]);
+				count += batch;
+				now = System.nanoTime();
+				if(iteration < WARMUP && now - start < 100000) batch *= 2;
+			} while(now < end);
+			long[] spent = MaxConnect4Benchmark.since(before);
+			sink += sum;
+			if(iteration < WARMUP) continue;
+			times[iteration - WARMUP] = spent[0] / 1e3 / count;
+			calls += count;
+			bytes += spent[1];
+			collections += spent[2];
+		}
+		double mean = 0, deviation = 0;
+		for(double t:times) mean += t / times.length;
+		for(double t:times) deviation += (t - mean) * (t - mean) / times.length;
+		System.out.println(String.format("%-24s %-6s %14.3f %12.3f %14.0f %12.1f %5d", operation.name, phase, mean,
+				Math.sqrt(deviation), 1e6 / mean, (double) bytes / calls, collections));
+	}
+
+	// A board of the corpus as GameBoard, BitBoard and the strings of its rows
+	static class Position {
+		final GameBoard board;
+		final BitBoard bits;
+		final String[] lines;
+
+		Position(GameBoard board) {
+			this.board = board;
+			this.bits = board.toBitBoard();
+			this.lines = board.getGameStateAsString().split("\r\n");
+		}
+	}
+
+	// One operation of the suite. It returns a value which depends on its result, which is added to the sink.
+	static abstract class Operation {
+		final String name;
+
+		Operation(String name) {
+			this.name = name;
+		}
+
+		abstract long run(Position position);
+	}
+}
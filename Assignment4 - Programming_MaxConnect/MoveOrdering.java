@@ -0,0 +1,102 @@
+import java.util.Arrays;
+
+/*
+MoveOrdering decides the order in which the search tries the columns of a position. Alpha-beta cuts off the most when
+the best move is tried first, so the columns are tried in this order:
+	the move of the principal variation of the previous iteration, while the search follows that variation
+	the best move stored in the transposition table for the position
+	the two killer moves of the ply, the last two moves which caused a cutoff at the same distance from the root
+	the other columns by their history score, which grows by depth*depth for every cutoff the column caused
+Columns with the same score are tried centre first, because the centre columns take part in the most quadruples. The
+arrays are sized for the largest Geometry, and a board uses as many columns as it has.
+The buffers for the ordered moves are made once, one per ply, so ordering allocates nothing.
+*/
+public class MoveOrdering {
+	// The columns of a board of every width by their distance from the centre, {3, 2, 4, 1, 5, 0, 6} for 7 columns
+	static final int[][] CENTRE_FIRST = new int[Geometry.MAX_COLUMNS + 1][];
+	static {
+		for(int columns=0;columns<CENTRE_FIRST.length;columns++) {
+			int[] order = new int[columns];
+			for(int c=0;c<columns;c++) {
+				// Insertion sort by distance, which keeps the left one of two columns at the same distance first
+				int i = c;
+				while(i > 0 && Math.abs(2*order[i-1] - columns + 1) > Math.abs(2*c - columns + 1)) {
+					order[i] = order[i-1];
+					i--;
+				}
+				order[i] = c;
+			}
+			CENTRE_FIRST[columns] = order;
+		}
+	}
+	private static final int PV_SCORE = 1 << 30;
+	private static final int TABLE_SCORE = 1 << 29;
+	private static final int KILLER_SCORE = 1 << 28;
+	// History scores are halved when one of them reaches this, so they stay below the killer scores
+	private static final int HISTORY_LIMIT = 1 << 20;
+	// Ordered moves of every ply
+	final int[][] moves;
+	private final int[][] killers;
+	private final int[][] history = new int[2][Geometry.MAX_COLUMNS];
+	private final int[] scores = new int[Geometry.MAX_COLUMNS];
+
+	public MoveOrdering(int plies) {
+		moves = new int[plies][Geometry.MAX_COLUMNS];
+		killers = new int[plies][2];
+		clear();
+	}
+
+//	Forgets the killer moves and history scores, before the search of a new move
+	public void clear() {
+		for(int[] k:killers) Arrays.fill(k, -1);
+		for(int[] h:history) Arrays.fill(h, 0);
+	}
+
+//	Puts the valid columns of the position into the moves of the ply, in column order with the table move first. Returns their number.
+	public int columns(SearchBoard state, int ply, int tableMove) {
+		int[] ordered = moves[ply];
+		int count = 0;
+		if(tableMove != -1 && state.isValidMove(tableMove)) ordered[count++] = tableMove;
+		for(int c=0;c<state.columns();c++) {
+			if(c != tableMove && state.isValidMove(c)) ordered[count++] = c;
+		}
+		return count;
+	}
+
+//	Puts the valid columns of the position into the moves of the ply, best first. Returns their number.
+	public int order(SearchBoard state, int ply, int pvMove, int tableMove) {
+		int[] ordered = moves[ply];
+		int count = 0;
+		for(int column:CENTRE_FIRST[state.columns()]) {
+			if(!state.isValidMove(column)) continue;
+			int score = history[state.next()][column];
+			if(column == pvMove) score = PV_SCORE;
+			else if(column == tableMove) score = TABLE_SCORE;
+			else if(column == killers[ply][0]) score = KILLER_SCORE + 1;
+			else if(column == killers[ply][1]) score = KILLER_SCORE;
+			// Insertion sort, which keeps columns with the same score in centre first order
+			int n = count++;
+			while(n > 0 && scores[n-1] < score) {
+				scores[n] = scores[n-1];
+				ordered[n] = ordered[n-1];
+				n--;
+			}
+			scores[n] = score;
+			ordered[n] = column;
+		}
+		return count;
+	}
+
+//	Records that the column played by the player at the ply caused a cutoff with the given depth left
+	public void cutoff(int player, int ply, int column, int depth) {
+		if(killers[ply][0] != column) {
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = column;
+		}
+		int[] h = history[player];
+		h[column] += depth * depth;
+		if(h[column] >= HISTORY_LIMIT) {
+			for(int c=0;c<h.length;c++) h[c] >>= 1;
+		}
+	}
+}
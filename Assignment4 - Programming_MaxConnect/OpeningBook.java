@@ -0,0 +1,146 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+OpeningBook holds the best reply to the positions of the first moves of a game, found offline by a deep search, so
+the first moves of a game take a lookup instead of a search. build() plays from the empty board up to a number of
+plies: where player 1 is to move, only the book move is followed and every reply of player 2, and the same again with
+the roles swapped, so the book answers every position either player can reach by following it. Positions found again
+through another order of moves are searched only once. The searches share one transposition table, so a book move may
+come from a deeper search of a later position, never from a shallower one.
+
+The book file is little endian: magic, version, the depth the moves were searched to, the number of plies, the number
+of positions N, then the N Zobrist hashes of the positions in ascending order, the N moves as bytes and the N values
+of the moves for the player to move as shorts. The file is memory mapped and looked up by binary search on the
+hashes, so loading it reads nothing and a lookup touches a few pages.
+
+Only positions without holes can come from the empty board, so a board with holes is never looked up.
+*/
+public class OpeningBook {
+	private static final int MAGIC = 0x4334424b; // "C4BK"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 20;
+	final int depth;
+	final int plies;
+	final int size;
+	private final ByteBuffer buffer;
+	// Offsets of the moves and of the values in the buffer
+	private final int moveOffset;
+	private final int valueOffset;
+
+	private OpeningBook(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.depth = buffer.getInt(8);
+		this.plies = buffer.getInt(12);
+		this.size = buffer.getInt(16);
+		this.moveOffset = HEADER_BYTES + size * 8;
+		this.valueOffset = moveOffset + size;
+	}
+
+//	Index of the position in the book, -1 if it is not in it
+	public int find(BitBoard board) {
+		if(board.emptyCount() + Long.bitCount(board.pieces[0] | board.pieces[1]) != BitBoard.ROWS * BitBoard.COLUMNS) return -1;
+		int low = 0, high = size - 1;
+		while(low <= high) {
+			int middle = (low + high) >>> 1;
+			long key = buffer.getLong(HEADER_BYTES + middle * 8);
+			if(key < board.hash) low = middle + 1;
+			else if(key > board.hash) high = middle - 1;
+			else return board.isValidMove(move(middle)) ? middle : -1;
+		}
+		return -1;
+	}
+
+	public int move(int index) {
+		return buffer.get(moveOffset + index);
+	}
+
+	public int value(int index) {
+		return buffer.getShort(valueOffset + index * 2);
+	}
+
+	public long sizeInBytes() {
+		return buffer.capacity();
+	}
+
+	/*
+	Searches the book positions up to the number of plies from the board with the engine to the depth.
+	@param board: the position the book starts from, usually the empty board
+	*/
+	public static OpeningBook build(BitBoard board, int plies, int depth, MaxConnect4 engine) {
+		Map<Long, int[]> entries = new HashMap<Long, int[]>();
+		for(int player=0;player<2;player++) {
+			expand(board, plies, depth, player, engine, entries, new HashMap<Long, Boolean>());
+		}
+		long[] keys = new long[entries.size()];
+		int n = 0;
+		for(long key:entries.keySet()) keys[n++] = key;
+		Arrays.sort(keys);
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + keys.length * 11).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(depth).putInt(plies).putInt(keys.length);
+		for(long key:keys) buffer.putLong(key);
+		for(long key:keys) buffer.put((byte) entries.get(key)[0]);
+		for(long key:keys) buffer.putShort((short) entries.get(key)[1]);
+		return new OpeningBook(buffer);
+	}
+
+//	Searches the position if the book player is to move and follows its move, otherwise follows every reply
+	private static void expand(BitBoard board, int plies, int depth, int bookPlayer, MaxConnect4 engine,
+			Map<Long, int[]> entries, Map<Long, Boolean> visited) {
+		if(plies < 0 || board.isTerminalState() || visited.put(board.hash, Boolean.TRUE) != null) return;
+		if(board.next == bookPlayer) {
+			int[] entry = entries.get(board.hash);
+			if(entry == null) {
+				entry = new int[] {engine.minimaxDecision(board, depth), engine.rootValue};
+				entries.put(board.hash, entry);
+			}
+			board.play(entry[0]);
+			expand(board, plies - 1, depth, bookPlayer, engine, entries, visited);
+			board.undo();
+		} else {
+			for(int c=0;c<BitBoard.COLUMNS;c++) {
+				if(!board.isValidMove(c)) continue;
+				board.play(c);
+				expand(board, plies - 1, depth, bookPlayer, engine, entries, visited);
+				board.undo();
+			}
+		}
+	}
+
+	public void write(String file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(0);
+			FileChannel channel = raf.getChannel();
+			ByteBuffer copy = buffer.duplicate();
+			copy.clear();
+			while(copy.hasRemaining()) channel.write(copy);
+		} finally {
+			raf.close();
+		}
+	}
+
+//	Maps the book file, returns null if it is missing or not a book of this version
+	public static OpeningBook load(String file) throws IOException {
+		if(!new File(file).isFile()) return null;
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			if(raf.length() < HEADER_BYTES) return null;
+			MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if(buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) return null;
+			if(raf.length() != HEADER_BYTES + buffer.getInt(16) * 11L) return null;
+			return new OpeningBook(buffer);
+		} finally {
+			raf.close();
+		}
+	}
+}
@@ -0,0 +1,141 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/*
+ParallelSearch splits the root of the MaxConnect4 search over the threads of a fork/join pool. The first valid column
+is searched alone with the full window, as the sequential search does, and then the other columns are searched at the
+same time. Every worker thread keeps its own MaxConnect4, with its own killer moves and history scores, and every column
+gets its own copy of the board. The workers share the transposition table and the values of the columns searched so
+far, which a column takes its alpha from.
+
+The sequential search chooses the first column with the highest value, so a column only needs to beat the columns
+before it, but must at least equal the columns after it. Its alpha is therefore the best value of the finished columns
+before it, or the best value of the finished columns after it minus one if that is higher. A column which fails low
+can then not be the move, and the move is the first column with the highest value, the same as the sequential search.
+On one thread the columns are searched in order with the same alpha as the sequential search. The root has a move for
+every column of the board, so at most one thread per column works at a time after the first column.
+*/
+public class ParallelSearch {
+	final int threads;
+	final TranspositionTable table;
+	private final ForkJoinPool pool;
+	private final ThreadLocal<MaxConnect4> engines;
+	// Nodes searched by all the threads for the last decision
+	long nodeCount = 0;
+	// Opening book and endgame settings, used as MaxConnect4 uses them
+	OpeningBook book;
+	int endgameCells = MaxConnect4.DEFAULT_ENDGAME_CELLS;
+	// Whether the last move was taken from the book
+	boolean bookHit;
+
+	public ParallelSearch(int threads, final TranspositionTable table) {
+		this.threads = threads;
+		this.table = table;
+		this.pool = new ForkJoinPool(threads);
+		this.engines = new ThreadLocal<MaxConnect4>() {
+			protected MaxConnect4 initialValue() {
+				MaxConnect4 engine = new MaxConnect4();
+				engine.table = table;
+				return engine;
+			}
+		};
+	}
+
+	/*
+	Returns the same move as MaxConnect4.minimaxDecision for the depth, -1 if there is none.
+	@param state: input game state
+	@param depth: resource limit for depth-limited search
+	*/
+	public int minimaxDecision(GameBoard state, int depth) {
+		nodeCount = 1;
+		bookHit = false;
+		SearchBoard board = state.toSearchBoard();
+		if(board.isTerminalState() || depth <= 0) return -1;
+		MaxConnect4 engine = engines.get();
+		engine.book = book;
+		engine.endgameCells = endgameCells;
+		int move = engine.bookMove(board, depth);
+		bookHit = move != -1;
+		if(bookHit) return move;
+		depth = engine.searchDepth(board, depth);
+		if(table != null) table.nextSearch();
+		// Values of the columns, and 1 for the columns which have been searched
+		AtomicIntegerArray values = new AtomicIntegerArray(board.columns());
+		AtomicIntegerArray done = new AtomicIntegerArray(board.columns());
+		long[] nodes = new long[board.columns()];
+		int first = 0;
+		while(!board.isValidMove(first)) first++;
+		values.set(first, engine.searchRootMove(board, first, Integer.MIN_VALUE, depth));
+		done.set(first, 1);
+		nodeCount += engine.nodeCount;
+		RootMove[] moves = new RootMove[board.columns()];
+		int count = 0;
+		for(int c=first+1;c<board.columns();c++) {
+			if(board.isValidMove(c)) moves[count++] = new RootMove(state.toSearchBoard(), c, depth, values, done, nodes);
+		}
+		if(count > 0) pool.invoke(new RootMoves(moves, count));
+		int action = first;
+		for(int c=first+1;c<board.columns();c++) {
+			nodeCount += nodes[c];
+			if(board.isValidMove(c) && values.get(c) > values.get(action)) action = c;
+		}
+		return action;
+	}
+
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	// Searches the moves of the root which come after the first one, all at the same time
+	private static class RootMoves extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final RootMove[] moves;
+		private final int count;
+
+		RootMoves(RootMove[] moves, int count) {
+			this.moves = moves;
+			this.count = count;
+		}
+
+		// A thread runs the tasks it forked last first, and other threads steal the ones forked first, so forking the
+		// columns from the right lets this thread search them from the left
+		protected void compute() {
+			for(int i=count-1;i>=0;i--) moves[i].fork();
+			for(int i=0;i<count;i++) moves[i].join();
+		}
+	}
+
+	// Searches one column of the root with the alpha given by the columns searched before it
+	private class RootMove extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final SearchBoard board;
+		private final int column;
+		private final int depth;
+		private final AtomicIntegerArray values;
+		private final AtomicIntegerArray done;
+		private final long[] nodes;
+
+		RootMove(SearchBoard board, int column, int depth, AtomicIntegerArray values, AtomicIntegerArray done, long[] nodes) {
+			this.board = board;
+			this.column = column;
+			this.depth = depth;
+			this.values = values;
+			this.done = done;
+			this.nodes = nodes;
+		}
+
+		protected void compute() {
+			MaxConnect4 engine = engines.get();
+			int alpha = Integer.MIN_VALUE;
+			for(int c=0;c<board.columns();c++) {
+				if(c == column || done.get(c) == 0) continue;
+				int value = values.get(c);
+				alpha = Math.max(alpha, c < column ? value : value - 1);
+			}
+			values.set(column, engine.searchRootMove(board, column, alpha, depth));
+			nodes[column] = engine.nodeCount;
+			done.set(column, 1);
+		}
+	}
+}
@@ -0,0 +1,44 @@
+/*
+SearchBoard is a game state the MaxConnect4 search plays and takes back its moves on. BitBoard is the one for the
+standard 6x7 board with connect 4 and LineBoard the one for any other Geometry. Players are 0 for player 1 and 1 for
+player 2. Scores, utility and evalValue are the same as GameBoard computes for the board by matching strings, and
+play and undo allocate nothing.
+*/
+public interface SearchBoard {
+	int columns();
+
+	// The player to move
+	int next();
+
+	// Zobrist hash of the pieces and the player to move
+	long hash();
+
+	boolean isTerminalState();
+
+	boolean isValidMove(int column);
+
+	// Drops a piece of the next player into the lowest empty cell of the column. The column must be a valid move.
+	void play(int column);
+
+	// Takes back the last move played
+	void undo();
+
+	// Column and row of the last move played, -1 if there is none
+	int lastColumn();
+
+	int lastRow();
+
+	// Number of lines of connect pieces completed by the player
+	int score(int player);
+
+	// Score of the max player minus the score of the other player
+	int getUtility(int maxPlayer);
+
+	// Number of lines the player can still complete: the ones with an empty cell and no piece of the other player
+	int open(int player);
+
+	// Number of empty cells, which is the number of moves left in the game
+	int emptyCount();
+
+	int evalValue(int maxPlayer);
+}
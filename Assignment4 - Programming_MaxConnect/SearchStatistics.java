@@ -0,0 +1,132 @@
+/*
+SearchStatistics counts what the MaxConnect4 search did for one decision, to see where the time of a slow move went:
+	the nodes visited at every ply from the root
+	the beta cutoffs of max nodes and the alpha cutoffs of min nodes, and how many of them the first move tried made
+	the calls of evalValue at the depth limit and the nodes which ended the game
+	the depth, nodes and time of every iteration, one for a search to the full depth and one per depth for iterative
+	deepening, with its effective branching factor, the number of nodes to the power of one over the depth
+The search only counts when MaxConnect4.stats is set, and it is null unless --stats is given, so a search without
+statistics pays one null check per node. ParallelSearch does not count.
+*/
+public class SearchStatistics {
+	final long[] nodes = new long[MaxConnect4.MAX_PLY + 1];
+	long betaCutoffs = 0;
+	long alphaCutoffs = 0;
+	long firstMoveCutoffs = 0;
+	long evalCalls = 0;
+	long terminalHits = 0;
+	// Whether the move was taken from the opening book, so nothing was searched
+	boolean bookMove = false;
+	// Depth, nodes, time in nanoseconds and whether it completed, for every iteration
+	private final int[] depths = new int[MaxConnect4.MAX_PLY + 1];
+	private final long[] iterationNodes = new long[MaxConnect4.MAX_PLY + 1];
+	private final long[] iterationNanos = new long[MaxConnect4.MAX_PLY + 1];
+	private final boolean[] completed = new boolean[MaxConnect4.MAX_PLY + 1];
+	private int iterations = 0;
+	private long startNanos;
+	private long startNodes;
+
+	public void clear() {
+		java.util.Arrays.fill(nodes, 0);
+		betaCutoffs = alphaCutoffs = firstMoveCutoffs = evalCalls = terminalHits = 0;
+		bookMove = false;
+		iterations = 0;
+	}
+
+//	Counts a cutoff made by the n-th move tried at a max node or a min node
+	void cutoff(boolean max, int n) {
+		if(max) betaCutoffs++;
+		else alphaCutoffs++;
+		if(n == 0) firstMoveCutoffs++;
+	}
+
+//	Starts an iteration to the depth, nodeCount being the nodes the decision has visited before it
+	void startIteration(int depth, long nodeCount) {
+		if(iterations == depths.length) return;
+		depths[iterations] = depth;
+		startNodes = nodeCount;
+		startNanos = System.nanoTime();
+	}
+
+	void endIteration(long nodeCount, boolean aborted) {
+		if(iterations == depths.length) return;
+		iterationNodes[iterations] = nodeCount - startNodes;
+		iterationNanos[iterations] = System.nanoTime() - startNanos;
+		completed[iterations] = !aborted;
+		iterations++;
+	}
+
+	long totalNodes() {
+		long total = 0;
+		for(long n:nodes) total += n;
+		return total;
+	}
+
+	long totalNanos() {
+		long total = 0;
+		for(int i=0;i<iterations;i++) total += iterationNanos[i];
+		return total;
+	}
+
+	private double branchingFactor(int iteration) {
+		return Math.pow(iterationNodes[iteration], 1.0 / Math.max(1, depths[iteration]));
+	}
+
+//	Effective branching factor of the deepest completed iteration, 0 if none completed
+	double branchingFactor() {
+		for(int i=iterations-1;i>=0;i--) {
+			if(completed[i]) return branchingFactor(i);
+		}
+		return 0;
+	}
+
+	double firstMoveCutoffRate() {
+		return (double) firstMoveCutoffs / Math.max(1, betaCutoffs + alphaCutoffs);
+	}
+
+//	The statistics of the decision as one JSON object
+	public String toJson(int move, int value) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"move\":").append(move).append(",\"value\":").append(value);
+		sb.append(",\"bookMove\":").append(bookMove);
+		sb.append(",\"nodes\":").append(totalNodes());
+		sb.append(",\"timeMs\":").append(format(totalNanos() / 1e6));
+		sb.append(",\"nodesPerPly\":[");
+		int plies = nodes.length;
+		while(plies > 0 && nodes[plies-1] == 0) plies--;
+		for(int i=0;i<plies;i++) sb.append(i > 0 ? "," : "").append(nodes[i]);
+		sb.append("],\"betaCutoffs\":").append(betaCutoffs);
+		sb.append(",\"alphaCutoffs\":").append(alphaCutoffs);
+		sb.append(",\"firstMoveCutoffRate\":").append(format(firstMoveCutoffRate()));
+		sb.append(",\"effectiveBranchingFactor\":").append(format(branchingFactor()));
+		sb.append(",\"evalCalls\":").append(evalCalls);
+		sb.append(",\"terminalHits\":").append(terminalHits);
+		sb.append(",\"iterations\":[");
+		for(int i=0;i<iterations;i++) {
+			sb.append(i > 0 ? "," : "").append("{\"depth\":").append(depths[i]);
+			sb.append(",\"nodes\":").append(iterationNodes[i]);
+			sb.append(",\"timeMs\":").append(format(iterationNanos[i] / 1e6));
+			sb.append(",\"completed\":").append(completed[i]);
+			sb.append(",\"branchingFactor\":").append(format(branchingFactor(i))).append('}');
+		}
+		return sb.append("]}").toString();
+	}
+
+//	The statistics of the decision on one line, with the depth and time of every iteration
+	public String toLine() {
+		if(bookMove) return "Search statistics: move taken from the opening book";
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("Search statistics: %d nodes in %.1f ms, ebf %.2f, %d beta and %d alpha cutoffs (%.1f%% on the first move), %d evals, %d terminal",
+				totalNodes(), totalNanos() / 1e6, branchingFactor(), betaCutoffs, alphaCutoffs, 100 * firstMoveCutoffRate(),
+				evalCalls, terminalHits));
+		sb.append(", iterations");
+		for(int i=0;i<iterations;i++) {
+			sb.append(String.format(" %d:%.1fms%s", depths[i], iterationNanos[i] / 1e6, completed[i] ? "" : "(abandoned)"));
+		}
+		return sb.toString();
+	}
+
+	private static String format(double value) {
+		return String.format(java.util.Locale.ROOT, "%.3f", value);
+	}
+}
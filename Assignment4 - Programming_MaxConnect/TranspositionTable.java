@@ -0,0 +1,115 @@
+/*
+TranspositionTable remembers the values of positions the search has already visited, so a position reached again
+through another order of moves is not searched again. It is a fixed number of slots in one long array, two longs per
+slot: the Zobrist hash of the position XOR the entry, and the entry packed into one long,
+	bits 0-31	the value, for player 1
+	bits 32-39	the depth the position was searched to
+	bits 40-41	EXACT, LOWER or UPPER: the value is exact, or the search was cut off and the value is a bound
+	bits 42-45	the best move plus one, 0 if there is none
+	bits 46-53	the search which stored the entry
+A position goes in the slot given by the low bits of its hash, and the replacement policy decides which of two
+positions keeps a slot:
+	always: the new position
+	depth:	the one searched deeper, unless the old one was stored by an earlier search
+Nothing is allocated after the table is created, and the table can be kept from one move to the next.
+
+Several threads may use one table without locks: as the first long of a slot is the hash XOR the entry, a slot which
+one thread read while another was writing it does not match the hash and is taken as a miss. The statistics are
+counted without synchronization, so with several threads they are approximate.
+*/
+public class TranspositionTable {
+	static final int EXACT = 1;
+	static final int LOWER = 2;
+	static final int UPPER = 3;
+	static final int ALWAYS = 0;
+	static final int DEPTH = 1;
+	private static final int DEPTH_SHIFT = 32;
+	private static final int BOUND_SHIFT = 40;
+	private static final int MOVE_SHIFT = 42;
+	private static final int SEARCH_SHIFT = 46;
+	private final long[] slots;
+	private final int mask;
+	private final int replacement;
+	// Number of the current search, kept in 8 bits
+	private int search = 0;
+	// Lookups, lookups which found the position, and lookups whose value could be used without searching
+	long probes = 0;
+	long hits = 0;
+	long cutoffs = 0;
+
+//	Creates a table of the largest power of two of slots that fits in the given number of megabytes
+	public TranspositionTable(int megabytes, int replacement) {
+		long size = Long.highestOneBit(Math.max(1, (long) megabytes << 20) / 16);
+		this.slots = new long[(int) Math.min(size, 1 << 28) * 2];
+		this.mask = slots.length / 2 - 1;
+		this.replacement = replacement;
+	}
+
+//	Returns ALWAYS or DEPTH for the name of a replacement policy, -1 for an unknown name
+	public static int replacement(String name) {
+		if(name.equals("always")) return ALWAYS;
+		if(name.equals("depth")) return DEPTH;
+		return -1;
+	}
+
+//	Starts a new search. Entries of earlier searches are still found, but the depth policy replaces them first.
+	public void nextSearch() {
+		search = (search + 1) & 0xff;
+	}
+
+	public void clear() {
+		java.util.Arrays.fill(slots, 0);
+		probes = hits = cutoffs = 0;
+	}
+
+//	Returns the entry of the position, 0 if it is not in the table
+	public long probe(long hash) {
+		probes++;
+		int slot = ((int) hash & mask) * 2;
+		long entry = slots[slot+1];
+		if(entry == 0 || (slots[slot] ^ entry) != hash) return 0;
+		hits++;
+		return entry;
+	}
+
+	public void store(long hash, int depth, int bound, int value, int move) {
+		int slot = ((int) hash & mask) * 2;
+		long old = slots[slot+1];
+		if(replacement == DEPTH && old != 0 && (slots[slot] ^ old) != hash && searchOf(old) == search && depth(old) > depth) return;
+		long entry = (value & 0xffffffffL) | (long) depth << DEPTH_SHIFT | (long) bound << BOUND_SHIFT
+				| (long) (move + 1) << MOVE_SHIFT | (long) search << SEARCH_SHIFT;
+		slots[slot] = hash ^ entry;
+		slots[slot+1] = entry;
+	}
+
+	static int value(long entry) {
+		return (int) entry;
+	}
+
+	static int depth(long entry) {
+		return (int) (entry >>> DEPTH_SHIFT) & 0xff;
+	}
+
+	static int bound(long entry) {
+		return (int) (entry >>> BOUND_SHIFT) & 0x3;
+	}
+
+//	Best move of the entry, -1 if there is none
+	static int move(long entry) {
+		return (int) ((entry >>> MOVE_SHIFT) & 0xf) - 1;
+	}
+
+	private static int searchOf(long entry) {
+		return (int) (entry >>> SEARCH_SHIFT) & 0xff;
+	}
+
+	public long sizeInBytes() {
+		return slots.length * 8L;
+	}
+
+//	Hit rate of the lookups since the table was created or cleared
+	public String statistics() {
+		return String.format("Transposition table: %d probes, %d hits (%.1f%%), %d cutoffs (%.1f%%)", probes, hits,
+				100.0 * hits / Math.max(1, probes), cutoffs, 100.0 * cutoffs / Math.max(1, probes));
+	}
+}
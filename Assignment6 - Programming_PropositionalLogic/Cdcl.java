@@ -0,0 +1,555 @@
+import java.util.Arrays;
+
+/*
+Cdcl decides whether the clauses of a Cnf can all be true with conflict-driven clause learning, for knowledge bases too
+large for the truth table or Dpll. When propagation makes a clause false it follows the reasons of the assignments back
+to the first literal of the last decision level all of them go through, learns the clause which says those literals can
+not all be set again, and jumps back to the level where the learned clause forces its literal.
+
+- Two watched literals: every clause of two or more literals is watched by its first two, and a clause is only looked at
+  when one of those becomes false. It then watches another literal which is not false, or its other watched literal is
+  forced. Nothing has to be done when a literal is unset, so backjumping is just taking the trail back.
+- VSIDS: the variables of every learned clause get their activity raised, and the activity of all decays by raising
+  the raise instead. Decisions take the most active variable from a heap, with the value it had last (phase saving).
+- Restarts: after a number of conflicts which follows the Luby sequence, the search goes back to level 0 and keeps what
+  it learned.
+- Learned clause deletion: when there are too many learned clauses, the half which connects the most decision levels
+  (LBD) is deleted, apart from the clauses of two levels or less and the ones which are reasons of an assignment.
+
+Clauses are kept in one int array: a clause at reference c has its size at c, its LBD and flags at c+1 and its literals
+after them. Inside the solver literal 2v is variable v and 2v+1 its negation, so that a literal indexes arrays directly.
+Assumptions are the first decisions of a solve, so learned clauses follow from the clauses alone and are kept for the
+next call.
+*/
+public class Cdcl implements SatSolver {
+	private static final int HEADER = 2;
+	private static final int LEARNED = 1;
+	private static final int DELETED = 2;
+	private static final int FLAG_BITS = 3;
+	private static final int RESTART_BASE = 100;
+	private static final double DECAY = 0.95;
+
+	private int[] arena = new int[1 << 12];
+	private int arenaSize = 0;
+	private int wasted = 0;
+	private int[] clauses = new int[256];
+	private int clauseCount = 0;
+	private int[] learned = new int[256];
+	private int learnedCount = 0;
+	private int maxLearned;
+
+	private int variables = 0;
+	// 1 true, -1 false, 0 not set, by variable
+	private int[] values = new int[1];
+	private int[] levels = new int[1];
+	// Clause which forced the assignment of every variable, -1 for decisions and level 0 units
+	private int[] reasons = new int[1];
+	private boolean[] phases = new boolean[1];
+	private boolean[] seen = new boolean[1];
+	// watches[l]: pairs of a clause watching literal l and a literal of it, which if true means the clause is true
+	private int[][] watches = new int[2][];
+	private int[] watchSizes = new int[2];
+
+	private double[] activity = new double[1];
+	private double increment = 1;
+	// Binary max heap of variables by activity, and the position of every variable in it, -1 if it is not in it
+	private int[] heap = new int[1];
+	private int heapSize = 0;
+	private int[] heapIndex = new int[1];
+
+	private int[] trail = new int[1];
+	private int trailSize = 0;
+	private int propagated = 0;
+	// Start of every decision level in the trail
+	private int[] levelStarts = new int[1];
+	private int level = 0;
+	// Levels counted by lbd(), marked with the stamp of the count
+	private int[] levelStamps = new int[1];
+	private int stamp = 0;
+	// False once the clauses can not be true in any case
+	private boolean ok = true;
+	private int[] buffer = new int[16];
+
+	private long decisions = 0;
+	private long conflicts = 0;
+	private long propagations = 0;
+	private int restarts = 0;
+
+	public Cdcl(Cnf cnf) {
+		addClauses(cnf, 0);
+		maxLearned = Math.max(2000, clauseCount / 3);
+	}
+
+//	Adds the clauses of the Cnf from the first one on, the ones encoded since the solver took the others
+	public void addClauses(Cnf cnf, int first) {
+		ensureVariables(cnf.variables());
+		int[] clause = new int[16];
+		for(int c=first;c<cnf.clauses();c++) {
+			int size = cnf.start(c+1) - cnf.start(c);
+			if(clause.length < size) clause = new int[size];
+			for(int i=0;i<size;i++) clause[i] = cnf.literal(cnf.start(c) + i);
+			addClause(clause, size);
+		}
+	}
+
+	public long decisions() {
+		return decisions;
+	}
+
+	public long conflicts() {
+		return conflicts;
+	}
+
+	public long propagations() {
+		return propagations;
+	}
+
+	public int learnedClauses() {
+		return learnedCount;
+	}
+
+	private static int internal(int literal) {
+		return literal > 0 ? 2 * literal : -2 * literal + 1;
+	}
+
+	private int value(int literal) {
+		int v = values[literal >> 1];
+		return (literal & 1) == 0 ? v : -v;
+	}
+
+//	Makes room for the variables up to n
+	private void ensureVariables(int n) {
+		if(n <= variables) return;
+		int size = n + 1;
+		if(size > values.length) {
+			int capacity = Math.max(size, values.length * 2);
+			values = Arrays.copyOf(values, capacity);
+			levels = Arrays.copyOf(levels, capacity);
+			reasons = Arrays.copyOf(reasons, capacity);
+			phases = Arrays.copyOf(phases, capacity);
+			seen = Arrays.copyOf(seen, capacity);
+			activity = Arrays.copyOf(activity, capacity);
+			heap = Arrays.copyOf(heap, capacity);
+			heapIndex = Arrays.copyOf(heapIndex, capacity);
+			trail = Arrays.copyOf(trail, capacity);
+			levelStarts = Arrays.copyOf(levelStarts, capacity);
+			levelStamps = Arrays.copyOf(levelStamps, capacity);
+			watches = Arrays.copyOf(watches, 2 * capacity);
+			watchSizes = Arrays.copyOf(watchSizes, 2 * capacity);
+		}
+		for(int v=variables+1;v<=n;v++) {
+			watches[2 * v] = new int[4];
+			watches[2 * v + 1] = new int[4];
+			heapIndex[v] = -1;
+			insert(v);
+		}
+		variables = n;
+	}
+
+	/*
+	Adds a clause of DIMACS literals. Literals false at level 0 are left out and a clause true at level 0 is not added;
+	an empty clause makes the clauses unsatisfiable and a unit one is set at level 0.
+	*/
+	public void addClause(int[] literals, int size) {
+		if(!ok) return;
+		int n = 0;
+		if(buffer.length < size) buffer = new int[size];
+		for(int i=0;i<size;i++) {
+			ensureVariables(Math.abs(literals[i]));
+			int l = internal(literals[i]);
+			if(value(l) == 1) return;
+			if(value(l) == -1) continue;
+			boolean repeated = false;
+			for(int j=0;j<n;j++) {
+				if(buffer[j] == (l ^ 1)) return;
+				if(buffer[j] == l) repeated = true;
+			}
+			if(!repeated) buffer[n++] = l;
+		}
+		if(n == 0) ok = false;
+		else if(n == 1) {
+			assign(buffer[0], -1);
+			ok = propagate() == -1;
+		}
+		else {
+			int c = allocate(buffer, n, 0, false);
+			if(clauseCount == clauses.length) clauses = Arrays.copyOf(clauses, clauseCount * 2);
+			clauses[clauseCount++] = c;
+		}
+	}
+
+	private int allocate(int[] literals, int size, int lbd, boolean isLearned) {
+		if(arenaSize + HEADER + size > arena.length) arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + HEADER + size));
+		int c = arenaSize;
+		arena[c] = size;
+		arena[c+1] = lbd << FLAG_BITS | (isLearned ? LEARNED : 0);
+		System.arraycopy(literals, 0, arena, c + HEADER, size);
+		arenaSize += HEADER + size;
+		watch(literals[0], c, literals[1]);
+		watch(literals[1], c, literals[0]);
+		return c;
+	}
+
+	private void watch(int literal, int c, int blocker) {
+		int[] list = watches[literal];
+		int n = watchSizes[literal];
+		if(n + 2 > list.length) list = watches[literal] = Arrays.copyOf(list, list.length * 2);
+		list[n] = c;
+		list[n+1] = blocker;
+		watchSizes[literal] = n + 2;
+	}
+
+	private void assign(int literal, int reason) {
+		int v = literal >> 1;
+		values[v] = (literal & 1) == 0 ? 1 : -1;
+		levels[v] = level;
+		reasons[v] = reason;
+		trail[trailSize++] = literal;
+	}
+
+//	Propagates the literals set since the last call, returns a clause which is false or -1 if there is none
+	private int propagate() {
+		while(propagated < trailSize) {
+			int falseLiteral = trail[propagated++] ^ 1;
+			propagations++;
+			int[] list = watches[falseLiteral];
+			int n = watchSizes[falseLiteral];
+			int i = 0, j = 0;
+			while(i < n) {
+				int c = list[i], blocker = list[i+1];
+				i += 2;
+				if(value(blocker) == 1) {
+					list[j++] = c;
+					list[j++] = blocker;
+					continue;
+				}
+				if((arena[c+1] & DELETED) != 0) continue;
+				int base = c + HEADER;
+				// The false literal goes second, so that the first is the one the clause may force
+				if(arena[base] == falseLiteral) {
+					arena[base] = arena[base+1];
+					arena[base+1] = falseLiteral;
+				}
+				int first = arena[base];
+				if(first != blocker && value(first) == 1) {
+					list[j++] = c;
+					list[j++] = first;
+					continue;
+				}
+				int size = arena[c];
+				boolean moved = false;
+				for(int k=2;k<size;k++) {
+					int l = arena[base+k];
+					if(value(l) != -1) {
+						arena[base+1] = l;
+						arena[base+k] = falseLiteral;
+						watch(l, c, first);
+						moved = true;
+						break;
+					}
+				}
+				if(moved) continue;
+				list[j++] = c;
+				list[j++] = first;
+				if(value(first) == -1) {
+					while(i < n) list[j++] = list[i++];
+					watchSizes[falseLiteral] = j;
+					propagated = trailSize;
+					return c;
+				}
+				assign(first, c);
+			}
+			watchSizes[falseLiteral] = j;
+		}
+		return -1;
+	}
+
+//	Whether the clauses can all be true with the assumed literals true
+	public boolean solve(int... assumptions) {
+		if(!ok) return false;
+		int[] assumed = new int[assumptions.length];
+		for(int i=0;i<assumptions.length;i++) {
+			ensureVariables(Math.abs(assumptions[i]));
+			assumed[i] = internal(assumptions[i]);
+		}
+		int status = 0;
+		while(status == 0) {
+			status = search(RESTART_BASE * luby(restarts++), assumed);
+		}
+		backjump(0);
+		return status == 1;
+	}
+
+//	Searches until the conflict limit: 1 when a model is found, -1 when there is none, 0 to restart
+	private int search(long limit, int[] assumed) {
+		long start = conflicts;
+		int[] clause = new int[Math.max(16, variables + 1)];
+		while(true) {
+			int conflict = propagate();
+			if(conflict != -1) {
+				conflicts++;
+				if(level == 0) {
+					ok = false;
+					return -1;
+				}
+				int size = analyze(conflict, clause);
+				// The literal of the highest level after the first goes second, as the clause watches it from that level on
+				int backLevel = 0;
+				if(size > 1) {
+					int back = 1;
+					for(int i=2;i<size;i++) {
+						if(levels[clause[i] >> 1] > levels[clause[back] >> 1]) back = i;
+					}
+					int t = clause[1];
+					clause[1] = clause[back];
+					clause[back] = t;
+					backLevel = levels[clause[1] >> 1];
+				}
+				backjump(backLevel);
+				if(size == 1) assign(clause[0], -1);
+				else {
+					int c = allocate(clause, size, lbd(clause, 0, size), true);
+					if(learnedCount == learned.length) learned = Arrays.copyOf(learned, learnedCount * 2);
+					learned[learnedCount++] = c;
+					assign(clause[0], c);
+				}
+				increment /= DECAY;
+			}
+			else {
+				if(conflicts - start >= limit) {
+					backjump(0);
+					return 0;
+				}
+				if(learnedCount - trailSize >= maxLearned) reduce();
+				int next = -1;
+				while(level < assumed.length) {
+					int p = assumed[level];
+					if(value(p) == 1) newLevel();
+					else if(value(p) == -1) return -1;
+					else {
+						next = p;
+						break;
+					}
+				}
+				if(next == -1) {
+					int v = 0;
+					while(heapSize > 0 && v == 0) {
+						v = removeMax();
+						if(values[v] != 0) v = 0;
+					}
+					if(v == 0) return 1;
+					next = phases[v] ? 2 * v : 2 * v + 1;
+				}
+				decisions++;
+				newLevel();
+				assign(next, -1);
+			}
+		}
+	}
+
+	private void newLevel() {
+		levelStarts[level++] = trailSize;
+	}
+
+	/*
+	First unique implication point: resolves the false clause with the reasons of its literals of the current level,
+	latest first, until one literal of the level is left. Puts the learned clause in clause, that literal negated
+	first, and returns its size.
+	*/
+	private int analyze(int conflict, int[] clause) {
+		int size = 1, paths = 0, literal = -1;
+		int index = trailSize - 1;
+		int c = conflict;
+		do {
+			if((arena[c+1] & LEARNED) != 0) {
+				// Reasons of conflicts keep their LBD up to date, as it may have dropped
+				int lbd = lbd(arena, c + HEADER, arena[c]);
+				if(lbd < arena[c+1] >>> FLAG_BITS) arena[c+1] = lbd << FLAG_BITS | (arena[c+1] & ((1 << FLAG_BITS) - 1));
+			}
+			int base = c + HEADER;
+			for(int k=literal == -1 ? 0 : 1;k<arena[c];k++) {
+				int q = arena[base+k];
+				int v = q >> 1;
+				if(!seen[v] && levels[v] > 0) {
+					seen[v] = true;
+					bump(v);
+					if(levels[v] >= level) paths++;
+					else clause[size++] = q;
+				}
+			}
+			while(!seen[trail[index] >> 1]) index--;
+			literal = trail[index--];
+			c = reasons[literal >> 1];
+			seen[literal >> 1] = false;
+			paths--;
+		} while(paths > 0);
+		clause[0] = literal ^ 1;
+		if(buffer.length < size) buffer = new int[size];
+		System.arraycopy(clause, 0, buffer, 0, size);
+		// A literal is left out when its reason is all literals of the clause already, or of level 0
+		int kept = 1;
+		for(int i=1;i<size;i++) {
+			int v = clause[i] >> 1;
+			int r = reasons[v];
+			boolean redundant = r != -1;
+			for(int k=1;redundant && k<arena[r];k++) {
+				int u = arena[r+HEADER+k] >> 1;
+				if(!seen[u] && levels[u] > 0) redundant = false;
+			}
+			if(!redundant) clause[kept++] = clause[i];
+		}
+		for(int i=1;i<size;i++) seen[buffer[i] >> 1] = false;
+		return kept;
+	}
+
+//	Number of decision levels of the literals from the offset
+	private int lbd(int[] literals, int offset, int size) {
+		stamp++;
+		int count = 0;
+		for(int i=offset;i<offset+size;i++) {
+			int l = levels[literals[i] >> 1];
+			if(levelStamps[l] != stamp) {
+				levelStamps[l] = stamp;
+				count++;
+			}
+		}
+		return count;
+	}
+
+//	Takes back every level above the given one
+	private void backjump(int to) {
+		if(level <= to) return;
+		int mark = levelStarts[to];
+		while(trailSize > mark) {
+			int v = trail[--trailSize] >> 1;
+			phases[v] = values[v] == 1;
+			values[v] = 0;
+			reasons[v] = -1;
+			if(heapIndex[v] == -1) insert(v);
+		}
+		propagated = mark;
+		level = to;
+	}
+
+	/*
+	Deletes the half of the learned clauses with the highest LBD, except the clauses of LBD 2 or less and the reasons of
+	assignments, and compacts the clauses when more than half of the array is deleted clauses.
+	*/
+	private void reduce() {
+		long[] keys = new long[learnedCount];
+		for(int i=0;i<learnedCount;i++) keys[i] = (long) (arena[learned[i]+1] >>> FLAG_BITS) << 32 | learned[i];
+		Arrays.sort(keys);
+		int kept = 0;
+		for(int i=0;i<keys.length;i++) {
+			int c = (int) keys[i];
+			boolean locked = reasons[arena[c+HEADER] >> 1] == c && value(arena[c+HEADER]) == 1;
+			if(i >= keys.length / 2 && (keys[i] >>> 32) > 2 && !locked) {
+				arena[c+1] |= DELETED;
+				wasted += HEADER + arena[c];
+			}
+			else learned[kept++] = c;
+		}
+		learnedCount = kept;
+		maxLearned += maxLearned / 10;
+		if(wasted > arenaSize / 2) compact();
+	}
+
+//	Copies the clauses which are not deleted to a new array and watches them again
+	private void compact() {
+		int[] next = new int[Math.max(1 << 12, (arenaSize - wasted) * 2)];
+		int size = 0;
+		for(int list=0;list<2;list++) {
+			int[] refs = list == 0 ? clauses : learned;
+			int count = list == 0 ? clauseCount : learnedCount;
+			for(int i=0;i<count;i++) {
+				int c = refs[i];
+				int length = HEADER + arena[c];
+				System.arraycopy(arena, c, next, size, length);
+				// The old size becomes the new reference, for the reasons below
+				arena[c] = size;
+				refs[i] = size;
+				size += length;
+			}
+		}
+		for(int i=0;i<trailSize;i++) {
+			int v = trail[i] >> 1;
+			if(reasons[v] != -1) reasons[v] = arena[reasons[v]];
+		}
+		arena = next;
+		arenaSize = size;
+		wasted = 0;
+		Arrays.fill(watchSizes, 0);
+		for(int list=0;list<2;list++) {
+			int[] refs = list == 0 ? clauses : learned;
+			int count = list == 0 ? clauseCount : learnedCount;
+			for(int i=0;i<count;i++) {
+				int c = refs[i];
+				watch(arena[c+HEADER], c, arena[c+HEADER+1]);
+				watch(arena[c+HEADER+1], c, arena[c+HEADER]);
+			}
+		}
+	}
+
+	private void bump(int v) {
+		if((activity[v] += increment) > 1e100) {
+			for(int u=1;u<=variables;u++) activity[u] *= 1e-100;
+			increment *= 1e-100;
+		}
+		if(heapIndex[v] != -1) up(heapIndex[v]);
+	}
+
+//	The Luby sequence 1 1 2 1 1 2 4 1 1 2 1 1 2 4 8 ..., element i from 0
+	static int luby(int i) {
+		int size = 1, sequence = 0;
+		while(size < i + 1) {
+			sequence++;
+			size = 2 * size + 1;
+		}
+		while(size - 1 != i) {
+			size = (size - 1) >> 1;
+			sequence--;
+			i = i % size;
+		}
+		return 1 << sequence;
+	}
+
+	private void insert(int v) {
+		heapIndex[v] = heapSize;
+		heap[heapSize++] = v;
+		up(heapSize - 1);
+	}
+
+	private int removeMax() {
+		int v = heap[0];
+		heap[0] = heap[--heapSize];
+		heapIndex[heap[0]] = 0;
+		heapIndex[v] = -1;
+		if(heapSize > 1) down(0);
+		return v;
+	}
+
+	private void up(int i) {
+		int v = heap[i];
+		while(i > 0 && activity[heap[(i - 1) >> 1]] < activity[v]) {
+			heap[i] = heap[(i - 1) >> 1];
+			heapIndex[heap[i]] = i;
+			i = (i - 1) >> 1;
+		}
+		heap[i] = v;
+		heapIndex[v] = i;
+	}
+
+	private void down(int i) {
+		int v = heap[i];
+		while(2 * i + 1 < heapSize) {
+			int child = 2 * i + 1;
+			if(child + 1 < heapSize && activity[heap[child+1]] > activity[heap[child]]) child++;
+			if(activity[heap[child]] <= activity[v]) break;
+			heap[i] = heap[child];
+			heapIndex[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = v;
+		heapIndex[v] = i;
+	}
+}
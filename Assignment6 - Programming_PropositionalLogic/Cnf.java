@@ -0,0 +1,184 @@
+import java.util.Arrays;
+
+/*
+Cnf turns Formulas into clauses for the SAT solvers with the Tseitin encoding: every operator gets a new variable which
+is true exactly when the operator is, defined by a few clauses over the variables of its operands, so the clauses grow
+linearly with the formula instead of exponentially as distributing or over and would. A formula is then true in a
+model exactly when the variable of its root is, and asking whether the KB entails alpha becomes asking whether the
+clauses with the root of the KB true and the root of alpha false can be satisfied.
+
+Literals are ints as in the DIMACS format: variable v is the literal v and its negation -v, from 1 up. Symbol id i of
+the Formulas is variable i+1 for the symbols the Cnf is made with, and the variables of the operators come after them.
+A symbol compiled later, by a statement encoded after the KB, gets the next free variable. The clauses are kept in one
+int array, clause c being the literals from start(c) to start(c+1), so a knowledge base of any size is a few arrays.
+
+xor means exactly one operand is true, as in Utils.evaluate. It is encoded with a sequential counter: s_i is true when
+one of the first i operands is, and c_i when operand i is true as well as one before it, which needs a linear number of
+clauses where comparing every pair of operands would need a quadratic one.
+*/
+public class Cnf {
+	private int variables;
+	private int[] literals = new int[1024];
+	private int size = 0;
+	private int[] starts = new int[256];
+	private int clauses = 0;
+	// The variable which is always true, 0 until a formula uses true or false
+	private int trueVariable = 0;
+	// Variable of every symbol id, 0 for the ids which have none yet
+	private int[] symbolVariables;
+
+//	Creates the clauses for formulas over the given number of symbols
+	public Cnf(int symbols) {
+		this.variables = symbols;
+		symbolVariables = new int[Math.max(16, symbols)];
+		for(int i=0;i<symbols;i++) symbolVariables[i] = i + 1;
+	}
+
+//	The variable of the symbol id
+	public int variable(int symbol) {
+		if(symbol >= symbolVariables.length) symbolVariables = Arrays.copyOf(symbolVariables, Math.max(symbol + 1, symbolVariables.length * 2));
+		if(symbolVariables[symbol] == 0) symbolVariables[symbol] = newVariable();
+		return symbolVariables[symbol];
+	}
+
+	public int variables() {
+		return variables;
+	}
+
+	public int clauses() {
+		return clauses;
+	}
+
+	public int literalCount() {
+		return size;
+	}
+
+//	First literal of the clause; start(clauses()) is the end of the last one
+	int start(int clause) {
+		return clause == clauses ? size : starts[clause];
+	}
+
+	int literal(int index) {
+		return literals[index];
+	}
+
+	public int newVariable() {
+		return ++variables;
+	}
+
+//	Adds a clause, without repeated literals. A clause with a literal and its negation is always true and is left out.
+	public void addClause(int... clause) {
+		if(clauses == starts.length) starts = Arrays.copyOf(starts, clauses * 2);
+		if(size + clause.length > literals.length) literals = Arrays.copyOf(literals, Math.max(literals.length * 2, size + clause.length));
+		int begin = size;
+		for(int literal:clause) {
+			boolean repeated = false;
+			for(int i=begin;i<size;i++) {
+				if(literals[i] == -literal) {
+					size = begin;
+					return;
+				}
+				if(literals[i] == literal) repeated = true;
+			}
+			if(!repeated) literals[size++] = literal;
+		}
+		starts[clauses++] = begin;
+	}
+
+	/*
+	Adds the clauses which define the formula and returns the literal which is true exactly when the formula is. Symbols
+	are their own variables, so encoding several formulas over the same symbols shares them.
+	*/
+	public int encode(Formula formula) {
+		int[] stack = new int[Math.max(1, formula.depth)];
+		int top = 0;
+		for(int instruction:formula.code) {
+			int argument = instruction >>> Formula.OP_BITS;
+			switch(instruction & Formula.OP_MASK) {
+			case Formula.SYMBOL:
+				stack[top++] = variable(argument);
+				break;
+			case Formula.TRUE:
+				stack[top++] = trueLiteral();
+				break;
+			case Formula.FALSE:
+				stack[top++] = -trueLiteral();
+				break;
+			case Formula.NOT:
+				stack[top-1] = -stack[top-1];
+				break;
+			case Formula.IF:
+				top--;
+				stack[top-1] = or(new int[] {-stack[top-1], stack[top]});
+				break;
+			case Formula.IFF:
+				top--;
+				stack[top-1] = iff(stack[top-1], stack[top]);
+				break;
+			default:
+				int[] operands = Arrays.copyOfRange(stack, top - argument, top);
+				top -= argument;
+				int operation = instruction & Formula.OP_MASK;
+				stack[top++] = operation == Formula.AND ? and(operands) : operation == Formula.OR ? or(operands) : exactlyOne(operands);
+			}
+		}
+		return stack[top-1];
+	}
+
+	private int trueLiteral() {
+		if(trueVariable == 0) {
+			trueVariable = newVariable();
+			addClause(trueVariable);
+		}
+		return trueVariable;
+	}
+
+//	A variable which is true exactly when all the literals are
+	int and(int[] inputs) {
+		if(inputs.length == 1) return inputs[0];
+		int v = newVariable();
+		int[] clause = new int[inputs.length + 1];
+		clause[0] = v;
+		for(int i=0;i<inputs.length;i++) {
+			addClause(-v, inputs[i]);
+			clause[i+1] = -inputs[i];
+		}
+		addClause(clause);
+		return v;
+	}
+
+//	A variable which is true exactly when one of the literals is
+	int or(int[] inputs) {
+		if(inputs.length == 1) return inputs[0];
+		int v = newVariable();
+		int[] clause = new int[inputs.length + 1];
+		clause[0] = -v;
+		for(int i=0;i<inputs.length;i++) {
+			addClause(v, -inputs[i]);
+			clause[i+1] = inputs[i];
+		}
+		addClause(clause);
+		return v;
+	}
+
+	int iff(int a, int b) {
+		int v = newVariable();
+		addClause(-v, -a, b);
+		addClause(-v, a, -b);
+		addClause(v, a, b);
+		addClause(v, -a, -b);
+		return v;
+	}
+
+//	A variable which is true exactly when one and only one of the literals is
+	int exactlyOne(int[] inputs) {
+		if(inputs.length == 1) return inputs[0];
+		int any = inputs[0];
+		int[] twice = new int[inputs.length - 1];
+		for(int i=1;i<inputs.length;i++) {
+			twice[i-1] = and(new int[] {any, inputs[i]});
+			any = or(new int[] {any, inputs[i]});
+		}
+		return and(new int[] {any, -or(twice)});
+	}
+}
@@ -0,0 +1,175 @@
+/*
+Dpll decides whether the clauses of a Cnf can all be true, with the Davis-Putnam-Logemann-Loveland search: it sets a
+variable, follows what the clauses force from it and takes the setting back when a clause can no longer be true.
+
+- Unit propagation: a clause whose literals are all false but one makes that one true.
+- Pure literals: a variable whose negation is in no clause which is still open is set to make its literal true, which
+  never makes a clause false.
+- Early termination: the search stops as soon as every clause has a true literal, without setting the variables left.
+
+Every clause counts its true and its false literals, and every literal the open clauses it is in, so setting a variable
+only looks at the clauses of its two literals. Variables are tried in order of the open clauses they are in, with the
+more frequent literal first. The assumptions of solve() are set before the search and taken back after it, so the same
+solver answers both questions of check_true_false.
+*/
+public class Dpll implements SatSolver {
+	private final int variables;
+	// Literals of clause c are literals[start[c]] to literals[start[c+1]-1]
+	private final int[] literals;
+	private final int[] start;
+	// occurrences[index(l)]: the clauses literal l is in
+	private final int[][] occurrences;
+	// 1 true, -1 false, 0 not set, by variable
+	private final int[] values;
+	private final int[] trueCount;
+	private final int[] falseCount;
+	// Open clauses, the ones without a true literal, each literal is in
+	private final int[] active;
+	private int openClauses;
+	// Literals set true, in order, and the first of them whose clauses are not propagated yet
+	private final int[] trail;
+	private int trailSize = 0;
+	private int propagated = 0;
+	private long decisions = 0;
+
+	public Dpll(Cnf cnf) {
+		variables = cnf.variables();
+		int clauses = cnf.clauses();
+		literals = new int[cnf.literalCount()];
+		start = new int[clauses + 1];
+		int[] counts = new int[2 * variables + 2];
+		for(int c=0;c<clauses;c++) {
+			start[c] = cnf.start(c);
+			for(int i=cnf.start(c);i<cnf.start(c+1);i++) {
+				literals[i] = cnf.literal(i);
+				counts[index(literals[i])]++;
+			}
+		}
+		start[clauses] = literals.length;
+		occurrences = new int[counts.length][];
+		for(int i=0;i<counts.length;i++) occurrences[i] = new int[counts[i]];
+		int[] filled = new int[counts.length];
+		for(int c=0;c<clauses;c++) {
+			for(int i=start[c];i<start[c+1];i++) {
+				int l = index(literals[i]);
+				occurrences[l][filled[l]++] = c;
+			}
+		}
+		values = new int[variables + 1];
+		trueCount = new int[clauses];
+		falseCount = new int[clauses];
+		active = counts;
+		openClauses = clauses;
+		trail = new int[variables];
+	}
+
+	private static int index(int literal) {
+		return literal > 0 ? 2 * literal : -2 * literal + 1;
+	}
+
+	public long decisions() {
+		return decisions;
+	}
+
+//	Whether the clauses can all be true with the assumed literals true
+	public boolean solve(int... assumptions) {
+		boolean satisfiable = true;
+		for(int c=0;c<start.length-1 && satisfiable;c++) {
+			if(start[c] == start[c+1]) satisfiable = false;
+			else if(start[c+1] - start[c] == 1) satisfiable = enqueue(literals[start[c]]);
+		}
+		for(int i=0;i<assumptions.length && satisfiable;i++) satisfiable = enqueue(assumptions[i]);
+		if(satisfiable) satisfiable = search();
+		backtrack(0);
+		return satisfiable;
+	}
+
+	private boolean search() {
+		if(!propagate()) return false;
+		if(openClauses == 0) return true;
+		int best = 0;
+		for(int v=1;v<=variables;v++) {
+			if(values[v] != 0) continue;
+			int positive = active[2 * v], negative = active[2 * v + 1];
+			if(positive == 0 && negative > 0) assign(-v);
+			else if(negative == 0 && positive > 0) assign(v);
+			else if(best == 0 || positive + negative > active[2 * best] + active[2 * best + 1]) best = v;
+		}
+		if(openClauses == 0) return true;
+		// Pure literals may have closed every clause of the best variable; an open clause still has a variable to set
+		if(active[2 * best] + active[2 * best + 1] == 0) {
+			best = 0;
+			for(int v=1;v<=variables && best == 0;v++) {
+				if(values[v] == 0 && active[2 * v] + active[2 * v + 1] > 0) best = v;
+			}
+		}
+		int literal = active[2 * best] >= active[2 * best + 1] ? best : -best;
+		int mark = trailSize;
+		decisions++;
+		assign(literal);
+		if(search()) return true;
+		backtrack(mark);
+		assign(-literal);
+		if(search()) return true;
+		backtrack(mark);
+		return false;
+	}
+
+//	Sets the literal true unless it is set already; false if it is set false
+	private boolean enqueue(int literal) {
+		int v = Math.abs(literal);
+		if(values[v] != 0) return values[v] == (literal > 0 ? 1 : -1);
+		assign(literal);
+		return true;
+	}
+
+	private void assign(int literal) {
+		int v = Math.abs(literal);
+		values[v] = literal > 0 ? 1 : -1;
+		trail[trailSize++] = literal;
+		for(int c:occurrences[index(literal)]) {
+			if(trueCount[c]++ == 0) close(c, -1);
+		}
+		for(int c:occurrences[index(-literal)]) falseCount[c]++;
+	}
+
+//	Takes back the literals set after the first mark of the trail
+	private void backtrack(int mark) {
+		while(trailSize > mark) {
+			int literal = trail[--trailSize];
+			for(int c:occurrences[index(literal)]) {
+				if(--trueCount[c] == 0) close(c, 1);
+			}
+			for(int c:occurrences[index(-literal)]) falseCount[c]--;
+			values[Math.abs(literal)] = 0;
+		}
+		propagated = Math.min(propagated, mark);
+	}
+
+//	Takes the clause out of the open clauses for a sign of -1, or puts it back for 1
+	private void close(int c, int sign) {
+		openClauses += sign;
+		for(int i=start[c];i<start[c+1];i++) active[index(literals[i])] += sign;
+	}
+
+//	Unit propagation of the literals set since the last one; false when a clause has every literal false
+	private boolean propagate() {
+		while(propagated < trailSize) {
+			int literal = trail[propagated++];
+			for(int c:occurrences[index(-literal)]) {
+				if(trueCount[c] > 0) continue;
+				int size = start[c+1] - start[c];
+				if(falseCount[c] == size) return false;
+				if(falseCount[c] == size - 1) {
+					for(int i=start[c];i<start[c+1];i++) {
+						if(values[Math.abs(literals[i])] == 0) {
+							assign(literals[i]);
+							break;
+						}
+					}
+				}
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,272 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/*
+Benchmarks and checks for check_true_false. Usage:
+1) EntailmentBenchmark leaves <wumpus_rules> <additional> <statement> <models>: evaluates the knowledge base and the
+   statement in random models, once with plTrue, which reads the statement again for every model, and once with the
+   compiled Formulas, checks that both give the same values and prints the time and the bytes allocated per model.
+2) EntailmentBenchmark engines <wumpus_rules> <cases> <revealed>: makes random worlds of the 4x4 rules, tells the KB the
+   percepts of the safe squares and of <revealed> more squares without a monster or a pit, asks about a square which
+   is not revealed and checks that every engine of check_true_false gives the same result. Prints the results and the
+   time of each engine.
+3) EntailmentBenchmark grid <size> <cases> <revealed %> <engines>: the same with the rules of WumpusRules for a grid of
+   the size, revealing the given percent of the squares, for the engines listed with commas, like dpll,cdcl. Prints
+   the size of the clauses and the time of each engine.
+4) EntailmentBenchmark questions <size> <cases> <revealed %> <questions>: in random worlds of the grid, asks the given
+   number of statements about random squares, once with the cdcl engine loading the KB for every question and once
+   with one EntailmentSession per world, checks that the answers are the same and prints the time per question.
+5) EntailmentBenchmark parallel <wumpus_rules> <additional> <statement> <threads>: runs the truth table with each number
+   of threads listed with commas, like 1,2,4,8, checks that the answers are the same and prints the time and the
+   speedup over the first.
+*/
+public class EntailmentBenchmark {
+	static final long SEED = 5360;
+
+	public static void main(String[] args) {
+		if(args.length == 5 && args[0].equals("leaves")) {
+			compareLeaves(args[1], args[2], args[3], Integer.parseInt(args[4]));
+		} else if(args.length == 4 && args[0].equals("engines")) {
+			String[] engines = {check_true_false.TRUTH_TABLE, check_true_false.PARALLEL_TRUTH_TABLE, check_true_false.DPLL, check_true_false.CDCL};
+			compareEngines(Utils.readFile(args[1]), 4, Integer.parseInt(args[2]), Integer.parseInt(args[3]), engines);
+		} else if(args.length == 5 && args[0].equals("grid")) {
+			int size = Integer.parseInt(args[1]);
+			int squares = size * size * Integer.parseInt(args[3]) / 100;
+			compareEngines(WumpusRules.rules(size, false), size, Integer.parseInt(args[2]), squares, args[4].split(","));
+		} else if(args.length == 5 && args[0].equals("questions")) {
+			int size = Integer.parseInt(args[1]);
+			int squares = size * size * Integer.parseInt(args[3]) / 100;
+			compareSession(size, Integer.parseInt(args[2]), squares, Integer.parseInt(args[4]));
+		} else if(args.length == 5 && args[0].equals("parallel")) {
+			compareThreads(Utils.readKnowledgeBase(args[1], args[2]), Utils.readFile(args[3]), args[4].split(","));
+		} else {
+			System.out.println("Enter valid command arguments.");
+		}
+	}
+
+	static void compareLeaves(String rulesFile, String additionalFile, String statementFile, int models) {
+		String KB = Utils.readKnowledgeBase(rulesFile, additionalFile);
+		String alpha = Utils.readFile(statementFile);
+		HashMap<String, Integer> ids = new HashMap<String, Integer>();
+		for(String symbol:Utils.getUniquePropositionalSymbols(KB+alpha)) ids.put(symbol, ids.size());
+		long start = System.nanoTime();
+		Formula kb = Formula.compile(KB, ids);
+		Formula statement = Formula.compile(alpha, ids);
+		long compile = System.nanoTime() - start;
+		Random random = new Random(SEED);
+		boolean[][] assignments = new boolean[models][ids.size()];
+		for(boolean[] model:assignments) {
+			for(int i=0;i<model.length;i++) model[i] = random.nextBoolean();
+		}
+		int mismatches = 0, kbTrue = 0;
+		// The maps of the models as plTrue takes them, with the constants true and false
+		HashMap<String, Boolean>[] maps = toMaps(assignments, ids);
+		for(int m=0;m<models;m++) {
+			boolean legacyKb = check_true_false.plTrue(KB, maps[m]);
+			if(legacyKb) kbTrue++;
+			if(legacyKb != kb.evaluate(assignments[m]) || check_true_false.plTrue(alpha, maps[m]) != statement.evaluate(assignments[m])) mismatches++;
+		}
+		System.out.println(String.format("%d symbols, %d instructions compiled in %.3f ms, %d models, KB true in %d, %d mismatches",
+				ids.size(), kb.code.length + statement.code.length, compile / 1e6, models, kbTrue, mismatches));
+		long sink = 0;
+		long[] before = counters();
+		for(int m=0;m<models;m++) {
+			if(check_true_false.plTrue(KB, maps[m])) sink++;
+			if(check_true_false.plTrue(alpha, maps[m])) sink++;
+		}
+		report("plTrue", models, since(before));
+		// The compiled formulas are much faster, so they check every model many times to take a measurable time
+		int rounds = 100;
+		before = counters();
+		for(int r=0;r<rounds;r++) {
+			for(int m=0;m<models;m++) {
+				if(kb.evaluate(assignments[m])) sink++;
+				if(statement.evaluate(assignments[m])) sink++;
+			}
+		}
+		report("Formula", (long) models * rounds, since(before));
+		if(sink == 42) System.out.println();
+	}
+
+	static void compareEngines(String rules, int size, int cases, int revealed, String[] engines) {
+		printSize(rules);
+		long[] times = new long[engines.length];
+		HashMap<String, Integer> results = new HashMap<String, Integer>();
+		int mismatches = 0;
+		Random random = new Random(SEED);
+		for(int n=0;n<cases;n++) {
+			String[] world = randomWorld(random, size, revealed);
+			String KB = "(and " + rules + world[0] + ")";
+			String[] outcomes = new String[engines.length];
+			for(int e=0;e<engines.length;e++) {
+				long start = System.nanoTime();
+				boolean[] entailed = check_true_false.entails(engines[e], KB, world[1]);
+				times[e] += System.nanoTime() - start;
+				outcomes[e] = entailed[0] ? (entailed[1] ? "both true and false" : "definitely true")
+						: (entailed[1] ? "definitely false" : "possibly true, possibly false");
+				if(!outcomes[e].equals(outcomes[0])) {
+					mismatches++;
+					System.out.println("Mismatch: " + engines[e] + " " + outcomes[e] + ", " + engines[0] + " " + outcomes[0] + " for " + world[1] + " with " + world[0]);
+				}
+			}
+			Integer count = results.get(outcomes[0]);
+			results.put(outcomes[0], count == null ? 1 : count + 1);
+		}
+		System.out.println(cases + " cases, " + mismatches + " mismatches, results " + results);
+		for(int e=0;e<engines.length;e++) {
+			System.out.println(String.format("%-5s %8.3f ms per case", engines[e] + ":", times[e] / 1e6 / cases));
+		}
+	}
+
+	static void compareThreads(String KB, String alpha, String[] threads) {
+		boolean[] first = null;
+		long base = 0;
+		// One run first so that the code the threads share is compiled before any of them is timed
+		check_true_false.ttEntails(KB, alpha, Integer.parseInt(threads[0]));
+		for(String count:threads) {
+			long start = System.nanoTime();
+			boolean[] entailed = check_true_false.ttEntails(KB, alpha, Integer.parseInt(count));
+			long time = System.nanoTime() - start;
+			if(first == null) {
+				first = entailed;
+				base = time;
+			}
+			boolean same = entailed[0] == first[0] && entailed[1] == first[1];
+			System.out.println(String.format("%3s threads: %9.1f ms, speedup %5.2f, entails alpha %b, not alpha %b%s", count,
+					time / 1e6, (double) base / time, entailed[0], entailed[1], same ? "" : " MISMATCH"));
+		}
+	}
+
+	static void compareSession(int size, int cases, int revealed, int questions) {
+		String rules = WumpusRules.rules(size, false);
+		Random random = new Random(SEED);
+		long fresh = 0, session = 0, load = 0, solve = 0;
+		int mismatches = 0;
+		for(int n=0;n<cases;n++) {
+			String[] world = randomWorld(random, size, revealed);
+			String KB = "(and " + rules + world[0] + ")";
+			String[] statements = new String[questions];
+			for(int q=0;q<questions;q++) {
+				String symbol = (random.nextBoolean() ? "M_" : "P_") + (random.nextInt(size) + 1) + "_" + (random.nextInt(size) + 1);
+				statements[q] = random.nextBoolean() ? symbol : "(or " + symbol + " " + world[1] + ")";
+			}
+			boolean[][] answers = new boolean[questions][];
+			long start = System.nanoTime();
+			for(int q=0;q<questions;q++) answers[q] = check_true_false.entails(check_true_false.CDCL, KB, statements[q]);
+			fresh += System.nanoTime() - start;
+			start = System.nanoTime();
+			EntailmentSession asked = new EntailmentSession(KB);
+			load += System.nanoTime() - start;
+			for(int q=0;q<questions;q++) {
+				boolean[] answer = asked.ask(statements[q]);
+				if(answer[0] != answers[q][0] || answer[1] != answers[q][1]) mismatches++;
+			}
+			session += System.nanoTime() - start;
+			solve += asked.solveTime();
+		}
+		long total = (long) cases * questions;
+		System.out.println(String.format("%d worlds, %d questions, %d mismatches", cases, total, mismatches));
+		System.out.println(String.format("cdcl per question:    %8.3f ms", fresh / 1e6 / total));
+		System.out.println(String.format("session per question: %8.3f ms, KB loaded in %.3f ms per world, %.3f ms per question solving",
+				session / 1e6 / total, load / 1e6 / cases, solve / 1e6 / total));
+	}
+
+//	Number of symbols, variables and clauses of the rules with Cnf
+	static void printSize(String rules) {
+		HashMap<String, Integer> ids = new HashMap<String, Integer>();
+		long start = System.nanoTime();
+		Formula kb = Formula.compile("(and " + rules + ")", ids);
+		Cnf cnf = new Cnf(ids.size());
+		cnf.encode(kb);
+		System.out.println(String.format("Rules: %d symbols, %d variables, %d clauses, %d literals, compiled and encoded in %.1f ms",
+				ids.size(), cnf.variables(), cnf.clauses(), cnf.literalCount(), (System.nanoTime() - start) / 1e6));
+	}
+
+	/*
+	A random world of the rules for the grid: one monster and pits, none of them on the four safe squares. Returns the
+	additional knowledge, the percepts of the safe squares and of the revealed squares, and a statement about a square
+	which is not revealed.
+	*/
+	static String[] randomWorld(Random random, int size, int revealed) {
+		boolean[][] monster = new boolean[size+1][size+1], pit = new boolean[size+1][size+1];
+		int pits = 0;
+		while(pits == 0) {
+			for(int i=1;i<=size;i++) {
+				for(int j=1;j<=size;j++) {
+					pit[i][j] = (i > 2 || j > 2) && random.nextInt(5) == 0;
+					if(pit[i][j]) pits++;
+				}
+			}
+		}
+		int m;
+		do m = random.nextInt(size * size); while(m % size < 2 && m / size < 2);
+		monster[m / size + 1][m % size + 1] = true;
+		boolean[][] known = new boolean[size+1][size+1];
+		known[1][1] = known[1][2] = known[2][1] = known[2][2] = true;
+		for(int r=0;r<revealed;r++) {
+			int i = random.nextInt(size) + 1, j = random.nextInt(size) + 1;
+			if(!monster[i][j] && !pit[i][j]) known[i][j] = true;
+		}
+		StringBuilder additional = new StringBuilder();
+		for(int i=1;i<=size;i++) {
+			for(int j=1;j<=size;j++) {
+				if(!known[i][j]) continue;
+				boolean stench = false, breeze = false;
+				for(int[] d:WumpusRules.NEIGHBOURS) {
+					int a = i + d[0], b = j + d[1];
+					if(a < 1 || a > size || b < 1 || b > size) continue;
+					stench |= monster[a][b];
+					breeze |= pit[a][b];
+				}
+				String square = "_" + i + "_" + j;
+				additional.append(stench ? "S" + square : "(not S" + square + ")").append(" ");
+				additional.append(breeze ? "B" + square : "(not B" + square + ")").append(" ");
+				additional.append("(not M" + square + ") (not P" + square + ") ");
+			}
+		}
+		// The statement is about a square which is not revealed, as the KB already says the revealed ones are safe
+		int i, j;
+		do {
+			i = random.nextInt(size) + 1;
+			j = random.nextInt(size) + 1;
+		} while(known[i][j]);
+		String symbol = (random.nextBoolean() ? "M_" : "P_") + i + "_" + j;
+		return new String[] {additional.toString(), random.nextBoolean() ? symbol : "(not " + symbol + ")"};
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	static HashMap<String, Boolean>[] toMaps(boolean[][] assignments, Map<String, Integer> ids) {
+		HashMap<String, Boolean>[] maps = new HashMap[assignments.length];
+		for(int m=0;m<assignments.length;m++) {
+			maps[m] = new HashMap<String, Boolean>();
+			for(Map.Entry<String, Integer> entry:ids.entrySet()) maps[m].put(entry.getKey(), assignments[m][entry.getValue()]);
+			maps[m].put("true", true);
+			maps[m].put("false", false);
+		}
+		return maps;
+	}
+
+	static void report(String name, long models, long[] counters) {
+		System.out.println(String.format("%-8s %d models in %d ms, %.3f us and %.1f bytes per model", name + ":", models,
+				counters[0] / 1000000, counters[0] / 1e3 / models, (double) counters[1] / models));
+	}
+
+//	Current time in nanoseconds and bytes allocated by this thread so far
+	static long[] counters() {
+		long allocated = -1;
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if(threads instanceof com.sun.management.ThreadMXBean) {
+			allocated = ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return new long[] {System.nanoTime(), allocated};
+	}
+
+	static long[] since(long[] before) {
+		long[] now = counters();
+		for(int i=0;i<now.length;i++) now[i] -= before[i];
+		return now;
+	}
+}
@@ -0,0 +1,53 @@
+import java.util.HashMap;
+
+/*
+EntailmentSession loads a knowledge base once and answers any number of statements against it, for an agent which
+asks many questions about the same KB in one turn. The KB is compiled and encoded into clauses once, and asserted in
+one Cdcl solver. Every statement asked is encoded into the same clauses: its Tseitin variables are new, so their
+definitions hold in every model of the KB and can stay in the solver. Whether the KB entails the statement and whether
+it entails its negation are then two solves with the literal of the statement assumed false and true, and everything
+the solver learned from earlier questions, which follows from the KB alone, speeds up the later ones.
+
+The answers are the same as check_true_false gives for the KB and the statement with any engine, and a statement
+asked again is answered from the answers already found.
+*/
+public class EntailmentSession {
+	private final HashMap<String, Integer> ids = new HashMap<String, Integer>();
+	private final Cnf cnf;
+	private final Cdcl solver;
+	// Clauses of cnf the solver has
+	private int loaded;
+	private final HashMap<String, boolean[]> answers = new HashMap<String, boolean[]>();
+	private long solveTime = 0;
+
+	public EntailmentSession(String KB) {
+		Formula kb = Formula.compile(KB, ids);
+		cnf = new Cnf(ids.size());
+		cnf.addClause(cnf.encode(kb));
+		solver = new Cdcl(cnf);
+		loaded = cnf.clauses();
+	}
+
+//	Whether the KB entails the statement and whether it entails not the statement
+	public boolean[] ask(String alpha) {
+		boolean[] answer = answers.get(alpha);
+		if(answer != null) return answer.clone();
+		int literal = cnf.encode(Formula.compile(alpha, ids));
+		solver.addClauses(cnf, loaded);
+		loaded = cnf.clauses();
+		long start = System.nanoTime();
+		answer = new boolean[] {!solver.solve(-literal), !solver.solve(literal)};
+		solveTime += System.nanoTime() - start;
+		answers.put(alpha, answer);
+		return answer.clone();
+	}
+
+	public Cdcl solver() {
+		return solver;
+	}
+
+//	Nanoseconds spent in the solver by ask()
+	public long solveTime() {
+		return solveTime;
+	}
+}
@@ -0,0 +1,138 @@
+import java.util.Map;
+import java.util.Stack;
+
+/*
+Formula is a statement compiled once into postfix code over int symbol ids, so that it can be checked in every model
+of the truth table without parsing it again. Every instruction is one int, the operation in the low 4 bits and its
+argument above them: the id of a symbol, or the number of operands of an operator. The model is a boolean[] indexed by
+symbol id, and evaluate() runs the code on a boolean stack made when the formula is compiled, so checking a model
+allocates nothing.
+
+The operators mean the same as in Utils.evaluate, and a statement is read the same way plTrue read it: operators in
+any case, the symbols true and false, and the value of the last expression if there are several. A statement Utils
+would find invalid, an operator with the wrong number of operands or a parenthesis without an operator, ends the
+program with the same message when it is compiled.
+*/
+public class Formula {
+	static final int SYMBOL = 0;
+	static final int TRUE = 1;
+	static final int FALSE = 2;
+	static final int AND = 3;
+	static final int OR = 4;
+	static final int IF = 5;
+	static final int IFF = 6;
+	static final int NOT = 7;
+	static final int XOR = 8;
+	static final int OP_BITS = 4;
+	static final int OP_MASK = (1 << OP_BITS) - 1;
+	final int[] code;
+	// Deepest stack the code needs
+	final int depth;
+	private final boolean[] stack;
+
+	private Formula(int[] code, int depth) {
+		this.code = code;
+		this.depth = depth;
+		this.stack = new boolean[Math.max(1, depth)];
+	}
+
+	/*
+	Compiles the statement. Symbols which are not in the map yet are added to it with the next free id, so the model
+	has to have symbols.size() entries once every statement is compiled.
+	*/
+	public static Formula compile(String statement, Map<String, Integer> symbols) {
+		String[] tokens = statement.replaceAll("\\(", "( ").replaceAll("\\)", " )").split("\\s+");
+		int[] code = new int[tokens.length];
+		int length = 0, size = 0, depth = 0;
+		Stack<String> operators = new Stack<String>();
+		// Number of operands before every open parenthesis
+		Stack<Integer> opened = new Stack<Integer>();
+		for(String token:tokens) {
+			if(token.isEmpty()) continue;
+			if(token.equals("(")) opened.push(size);
+			else if(token.equals(")")) {
+				if(operators.isEmpty() || opened.isEmpty()) Utils.exit("Invalid Statement!!\n>>>" + statement);
+				String operator = operators.pop();
+				int count = size - opened.pop();
+				code[length++] = operationOf(operator, count) | count << OP_BITS;
+				size = size - count + 1;
+			}
+			else if(check_true_false.operatorSet.contains(token.toLowerCase())) operators.push(token);
+			else {
+				if(token.equals("true")) code[length++] = TRUE;
+				else if(token.equals("false")) code[length++] = FALSE;
+				else {
+					Integer id = symbols.get(token);
+					if(id == null) {
+						id = symbols.size();
+						symbols.put(token, id);
+					}
+					code[length++] = SYMBOL | id << OP_BITS;
+				}
+				size++;
+				depth = Math.max(depth, size);
+			}
+		}
+		if(size == 0) Utils.exit("Invalid Statement!!\n>>>" + statement);
+		return new Formula(java.util.Arrays.copyOf(code, length), depth);
+	}
+
+//	The operation of the operator with the number of operands, or the end of the program if Utils.evaluate would not take it
+	private static int operationOf(String operator, int count) {
+		operator = operator.toLowerCase();
+		if(operator.equals("and") && count > 1) return AND;
+		if(operator.equals("or") && count > 1) return OR;
+		if(operator.equals("if") && count == 2) return IF;
+		if(operator.equals("iff") && count == 2) return IFF;
+		if(operator.equals("not") && count == 1) return NOT;
+		if(operator.equals("xor") && count > 1) return XOR;
+		Utils.exit("Invalid Statement!!\n>>>" + operator + " with length " + count);
+		return -1;
+	}
+
+//	The truth value of the formula in the model. Not thread safe, as the stack is shared; see evaluate(model, stack).
+	public boolean evaluate(boolean[] model) {
+		return evaluate(model, stack);
+	}
+
+//	The truth value of the formula in the model, using the given stack of at least depth entries
+	public boolean evaluate(boolean[] model, boolean[] stack) {
+		int top = 0;
+		for(int instruction:code) {
+			int argument = instruction >>> OP_BITS;
+			switch(instruction & OP_MASK) {
+			case SYMBOL:
+				stack[top++] = model[argument];
+				break;
+			case TRUE:
+				stack[top++] = true;
+				break;
+			case FALSE:
+				stack[top++] = false;
+				break;
+			case NOT:
+				stack[top-1] = !stack[top-1];
+				break;
+			case IF:
+				top--;
+				stack[top-1] = !stack[top-1] || stack[top];
+				break;
+			case IFF:
+				top--;
+				stack[top-1] = stack[top-1] == stack[top];
+				break;
+			default:
+				// AND, OR and XOR take any number of operands: all true, any true, exactly one true
+				int first = top - argument;
+				int trues = 0;
+				for(int i=first;i<top;i++) {
+					if(stack[i]) trues++;
+				}
+				int operation = instruction & OP_MASK;
+				stack[first] = operation == AND ? trues == argument : operation == OR ? trues > 0 : trues == 1;
+				top = first + 1;
+			}
+		}
+		return stack[top-1];
+	}
+}
@@ -0,0 +1,89 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/*
+ParallelModelCheck enumerates the truth table of check_true_false on a ForkJoinPool. The first k unknown symbols are
+set by forking, each task setting one of them both ways in two copies of its model, so the 2^k tasks at the bottom
+enumerate independent halves of halves of the table with their own model and their own evaluation stacks. k is a few
+more than the number of threads needs, so that a worker which finishes early steals more of the table.
+
+The answers are shared: a model of the KB where alpha is false clears whether the KB entails alpha, one where alpha is
+true whether it entails not alpha, and every worker stops as soon as both are cleared, as no other model can change
+the answer then.
+*/
+public class ParallelModelCheck {
+	// Tasks per thread, as a power of 2, so that the work stays balanced when parts of the table are quicker
+	static final int EXTRA_SPLITS = 4;
+
+	private final Formula kb;
+	private final Formula alpha;
+	private final int[] symbols;
+	// Number of symbols set by forking
+	private final int splits;
+	// 1 while the KB may still entail alpha, at 0, and not alpha, at 1
+	private final AtomicIntegerArray entailed = new AtomicIntegerArray(new int[] {1, 1});
+
+	private ParallelModelCheck(Formula kb, Formula alpha, int[] symbols, int threads) {
+		this.kb = kb;
+		this.alpha = alpha;
+		this.symbols = symbols;
+		int k = EXTRA_SPLITS;
+		while((1 << (k - EXTRA_SPLITS)) < threads) k++;
+		this.splits = Math.min(k, symbols.length);
+	}
+
+//	Whether the KB entails alpha and whether it entails not alpha, in every model of the symbols from the given one
+	public static boolean[] check(Formula kb, Formula alpha, int[] symbols, boolean[] model, int threads) {
+		ParallelModelCheck check = new ParallelModelCheck(kb, alpha, symbols, threads);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			pool.invoke(check.new Task(0, model.clone()));
+		} finally {
+			pool.shutdown();
+		}
+		return new boolean[] {check.entailed.get(0) == 1, check.entailed.get(1) == 1};
+	}
+
+	private boolean done() {
+		return entailed.get(0) == 0 && entailed.get(1) == 0;
+	}
+
+	private class Task extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int index;
+		private final boolean[] model;
+
+		Task(int index, boolean[] model) {
+			this.index = index;
+			this.model = model;
+		}
+
+		protected void compute() {
+			if(done()) return;
+			if(index < splits) {
+				boolean[] other = model.clone();
+				model[symbols[index]] = true;
+				other[symbols[index]] = false;
+				invokeAll(new Task(index + 1, model), new Task(index + 1, other));
+			}
+			else checkAll(index, new boolean[Math.max(1, kb.depth)], new boolean[Math.max(1, alpha.depth)]);
+		}
+
+//		Same as check_true_false.ttCheckAll, with the shared answers and the stacks of the task
+		private boolean checkAll(int i, boolean[] kbStack, boolean[] alphaStack) {
+			if(i == symbols.length) {
+				if(kb.evaluate(model, kbStack)) {
+					int cleared = alpha.evaluate(model, alphaStack) ? 1 : 0;
+					if(entailed.get(cleared) == 1) entailed.set(cleared, 0);
+				}
+				return !done();
+			}
+			int symbol = symbols[i];
+			model[symbol] = true;
+			if(!checkAll(i + 1, kbStack, alphaStack)) return false;
+			model[symbol] = false;
+			return checkAll(i + 1, kbStack, alphaStack);
+		}
+	}
+}
@@ -0,0 +1,11 @@
+/*
+SatSolver is an engine check_true_false decides entailment with: it answers whether the clauses of a Cnf can all be
+true together with some literals assumed true. Literals are in the DIMACS form of Cnf. The assumptions only hold for
+one call, so the same solver answers whether the KB entails alpha and whether it entails not alpha.
+*/
+public interface SatSolver {
+	boolean solve(int... assumptions);
+
+	// Branching decisions made so far, over all calls
+	long decisions();
+}
@@ -4,6 +4,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.regex.Matcher;
@@ -90,11 +91,13 @@ public class Utils {
 //	Returns a linked list of the unique propositional symbols involved in the knowledge base and statement.
 	public static LinkedList<String> getUniquePropositionalSymbols(String targetString) {
 		LinkedList<String> symbolsList = new LinkedList<String>();
-		Pattern p = Pattern.compile("[A-Za-z]_[1-4]_[1-4]");
+		HashSet<String> found = new HashSet<String>();
+		// Squares of any grid, so that M_1_12 is one symbol and not M_1_1 followed by a 2
+		Pattern p = Pattern.compile("\\b[A-Za-z]_[1-9][0-9]*_[1-9][0-9]*\\b");
 		Matcher match = p.matcher(targetString);
 		while (match.find()) {
 			String symbol = match.group();
-			if (!symbolsList.contains(symbol))
+			if (found.add(symbol))
 				symbolsList.add(match.group());
 		}
 		return symbolsList;
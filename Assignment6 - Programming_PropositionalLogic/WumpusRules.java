@@ -0,0 +1,79 @@
+/*
+Generates the wumpus rules of wumpus_rules.txt for a grid of any size, square (i,j) for i and j from 1 to size, with
+the same patterns: a monster makes stench and a pit breeze on every adjacent square, stench means one and only one
+adjacent monster and breeze at least one adjacent pit, there is one monster, the squares (1,1), (1,2), (2,1) and (2,2)
+are safe, and there is at least one pit but not one on every square. The adjacent squares are listed in the order of
+the file, so WumpusRules 4 gives the rules of wumpus_rules.txt. Usage: WumpusRules <size> <output file>
+*/
+public class WumpusRules {
+	// Adjacent squares in the order wumpus_rules.txt lists them
+	static final int[][] NEIGHBOURS = {{0, -1}, {1, 0}, {0, 1}, {-1, 0}};
+
+	public static void main(String[] args) {
+		if(args.length == 2) Utils.writeToFile(rules(Integer.parseInt(args[0]), true), args[1]);
+		else Utils.exit("Enter valid command arguments.");
+	}
+
+//	The rules for a grid of the size, one per line, with the comments of wumpus_rules.txt if comments is true
+	public static String rules(int size, boolean comments) {
+		StringBuilder rules = new StringBuilder();
+		if(comments) rules.append("#If there is a monster at square (i,j), there is stench at all adjacent squares.\n");
+		consequences(rules, size, "M", "S");
+		if(comments) rules.append("#If there is stench at square (i,j), there is a monster at one of the adjacent squares.\n");
+		causes(rules, size, "S", "xor", "M");
+		if(comments) rules.append("#If there is a pit at square (i,j), there is breeze at all adjacent squares.\n");
+		consequences(rules, size, "P", "B");
+		if(comments) rules.append("#If there is breeze at square (i,j), there is a pit at one or more of the adjacent squares.\n");
+		causes(rules, size, "B", "or", "P");
+		if(comments) rules.append("#There is one and only one monster (no more, no fewer).\n");
+		rules.append("(xor").append(every(size, "M")).append(")\n");
+		if(comments) rules.append("#Squares (1,1), (1,2), (2,1), (2,2) have no monsters and no pits.\n");
+		for(String symbol:new String[] {"M", "P"}) {
+			rules.append("(not ").append(symbol).append("_1_1)\n");
+			rules.append("(not ").append(symbol).append("_1_2)\n");
+			rules.append("(not ").append(symbol).append("_2_1)\n");
+			rules.append("(not ").append(symbol).append("_2_2)\n");
+		}
+		if(comments) rules.append("#The number of pits can be between 1 and " + (size * size - 5) + ".\n");
+		rules.append("(or").append(every(size, "P")).append(")\n");
+		rules.append("(not (and").append(every(size, "P")).append(") )\n");
+		return rules.toString();
+	}
+
+//	(if X_i_j (and Y of every adjacent square) ) for every square
+	private static void consequences(StringBuilder rules, int size, String cause, String effect) {
+		for(int i=1;i<=size;i++) {
+			for(int j=1;j<=size;j++) {
+				rules.append("(if ").append(cause).append("_").append(i).append("_").append(j).append(" (and");
+				rules.append(adjacent(size, i, j, effect)).append(") )\n");
+			}
+		}
+	}
+
+//	(iff Y_i_j (operator X of every adjacent square) ) for every square
+	private static void causes(StringBuilder rules, int size, String effect, String operator, String cause) {
+		for(int i=1;i<=size;i++) {
+			for(int j=1;j<=size;j++) {
+				rules.append("(iff ").append(effect).append("_").append(i).append("_").append(j).append(" (").append(operator);
+				rules.append(adjacent(size, i, j, cause)).append(") )\n");
+			}
+		}
+	}
+
+	private static String adjacent(int size, int i, int j, String symbol) {
+		StringBuilder symbols = new StringBuilder();
+		for(int[] d:NEIGHBOURS) {
+			int a = i + d[0], b = j + d[1];
+			if(a >= 1 && a <= size && b >= 1 && b <= size) symbols.append(" ").append(symbol).append("_").append(a).append("_").append(b);
+		}
+		return symbols.toString();
+	}
+
+	private static String every(int size, String symbol) {
+		StringBuilder symbols = new StringBuilder();
+		for(int i=1;i<=size;i++) {
+			for(int j=1;j<=size;j++) symbols.append(" ").append(symbol).append("_").append(i).append("_").append(j);
+		}
+		return symbols.toString();
+	}
+}
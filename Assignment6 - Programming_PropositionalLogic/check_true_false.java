@@ -3,67 +3,111 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Stack;
 
 public class check_true_false {
 	public static final String outputFile = "result.txt";
 	public static String[] operatorArr = {"and", "or", "if", "iff", "not", "xor"};
 	public static HashSet<String> operatorSet = new HashSet<String>(Arrays.asList(operatorArr));
+	// Engines which decide entailment: the truth table, on one thread or on all, and the DPLL and CDCL SAT solvers on the
+	// clauses of the KB
+	public static final String TRUTH_TABLE = "tt";
+	public static final String PARALLEL_TRUTH_TABLE = "tt-parallel";
+	public static final String DPLL = "dpll";
+	public static final String CDCL = "cdcl";
 	
-//	Read the arguments and validates the format as per the project requirements.
+/*	Read the arguments and validates the format as per the project requirements. An optional fourth argument picks the
+	engine, tt by default, tt-parallel, dpll or cdcl.*/
 	public static void main(String[] args) {
-		if(args.length == 3) {
+		if(args.length == 3 || args.length == 4) {
 			String wumpusRulesFile = args[0];
 			String additionalFile = args[1];
 			String statementFile = args[2];
+			String engine = args.length == 4 ? args[3].toLowerCase() : TRUTH_TABLE;
+			if(!engine.equals(TRUTH_TABLE) && !engine.equals(PARALLEL_TRUTH_TABLE) && !engine.equals(DPLL) && !engine.equals(CDCL)) {
+				Utils.exit("Unknown engine " + args[3] + ", use tt, tt-parallel, dpll or cdcl.");
+			}
 			String KB = Utils.readKnowledgeBase(wumpusRulesFile, additionalFile);
 			String alpha = Utils.readFile(statementFile);
-			String notAlpha = "(not " + alpha + ")";
-			boolean kbEntailsStatement = ttEntails(KB, alpha);
-			boolean kbEntailsNotStatement = ttEntails(KB, notAlpha);
-			writeOutputToFile(kbEntailsStatement, kbEntailsNotStatement);
+			boolean[] entailed = entails(engine, KB, alpha);
+			writeOutputToFile(entailed[0], entailed[1]);
 		}
-		// Print the following error when arguments count is not equal to 3
+		// Print the following error when arguments count is not 3 or 4
 		else Utils.exit("Enter valid command arguments.");
 	}
 
-//	Checks if knowledge base entails alpha.
-	private static boolean ttEntails(String KB, String alpha) {
+/*	Whether the KB entails alpha and whether it entails not alpha, with the engine. The cdcl engine goes through an
+	EntailmentSession, which answers more statements against the same KB without loading it again.*/
+	static boolean[] entails(String engine, String KB, String alpha) {
+		if(engine.equals(CDCL)) return new EntailmentSession(KB).ask(alpha);
+		if(engine.equals(DPLL)) return satEntails(KB, alpha);
+		if(engine.equals(PARALLEL_TRUTH_TABLE)) return ttEntails(KB, alpha, Runtime.getRuntime().availableProcessors());
+		return ttEntails(KB, alpha, 1);
+	}
+
+/*	Checks if the KB entails alpha and if it entails not alpha with the DPLL solver. The KB entails a statement when the
+	KB and the negation of the statement can not both be true, so both questions are one solve each on the same clauses,
+	with the literals of the KB and of alpha assumed true or false.*/
+	private static boolean[] satEntails(String KB, String alpha) {
+		HashMap<String, Integer> ids = new HashMap<String, Integer>();
+		Formula kb = Formula.compile(KB, ids);
+		Formula statement = Formula.compile(alpha, ids);
+		Cnf cnf = new Cnf(ids.size());
+		int kbLiteral = cnf.encode(kb);
+		int alphaLiteral = cnf.encode(statement);
+		SatSolver solver = new Dpll(cnf);
+		return new boolean[] {!solver.solve(kbLiteral, -alphaLiteral), !solver.solve(kbLiteral, alphaLiteral)};
+	}
+
+/*	Checks if knowledge base entails alpha and if it entails not alpha, in one enumeration of the truth table: the KB
+	entails alpha when alpha is true in every model of the KB, and not alpha when alpha is false in every one. The KB and
+	alpha are compiled once into Formulas over symbol ids, and every model of the truth table is a boolean[] indexed by
+	the ids, which the Formulas are evaluated in. With more than one thread ParallelModelCheck splits the table.*/
+	static boolean[] ttEntails(String KB, String alpha, int threads) {
 		LinkedList<String> symbols = Utils.getUniquePropositionalSymbols(KB+alpha);
-		HashMap<String, Boolean> model = new HashMap<String, Boolean>();
-		optimizeForEfficiency(KB, symbols, model);
-		model.put("true", true);
-		model.put("false", false);
-		return ttCheckAll(KB, alpha, symbols, model);
+		HashMap<String, Integer> ids = new HashMap<String, Integer>();
+		for(String symbol:symbols) ids.put(symbol, ids.size());
+		Formula kb = Formula.compile(KB, ids);
+		Formula statement = Formula.compile(alpha, ids);
+		// Tokens which are not symbols of the pattern of Utils are modeled as well
+		String[] names = new String[ids.size()];
+		for(Map.Entry<String, Integer> entry:ids.entrySet()) names[entry.getValue()] = entry.getKey();
+		for(int i=symbols.size();i<names.length;i++) symbols.add(names[i]);
+		HashMap<String, Boolean> known = new HashMap<String, Boolean>();
+		optimizeForEfficiency(KB, symbols, known);
+		boolean[] model = new boolean[ids.size()];
+		for(Map.Entry<String, Boolean> entry:known.entrySet()) {
+			Integer id = ids.get(entry.getKey());
+			if(id != null) model[id] = entry.getValue();
+		}
+		int[] unknown = new int[symbols.size()];
+		for(int i=0;i<unknown.length;i++) unknown[i] = ids.get(symbols.get(i));
+		if(threads > 1) return ParallelModelCheck.check(kb, statement, unknown, model, threads);
+		boolean[] entailed = {true, true};
+		ttCheckAll(kb, statement, unknown, 0, model, entailed);
+		return entailed;
 	}
 	
-//	Recursively creates all the models using propositional symbols to check if knowledge base entails alpha.
-	private static boolean ttCheckAll(String KB, String alpha, LinkedList<String> symbols, HashMap<String, Boolean> model) {
-		if(symbols.isEmpty()) {
-			boolean kbTrueInModel = plTrue(KB, model);
-			boolean alphaTrueInModel = plTrue(alpha, model);
-//			System.out.println("model + \n>>kbTrueInModel: " + kbTrueInModel + " & alphaTrueInModel: " + alphaTrueInModel);
-			if(kbTrueInModel) return alphaTrueInModel;
-			else return true;
+/*	Recursively creates all the models by setting the symbols from the index on. A model of the KB where alpha is false
+	clears entailed[0] and one where it is true clears entailed[1]; once both are cleared no other model can change the
+	answer, and false is returned to stop.*/
+	private static boolean ttCheckAll(Formula KB, Formula alpha, int[] symbols, int index, boolean[] model, boolean[] entailed) {
+		if(index == symbols.length) {
+			if(KB.evaluate(model)) entailed[alpha.evaluate(model) ? 1 : 0] = false;
+			return entailed[0] || entailed[1];
 		}
 		else {
-			String first = symbols.get(0);
-			LinkedList<String> rest = new LinkedList<String>();
-			for(int i=1; i<symbols.size();i++) {
-				rest.add(symbols.get(i));
-			}
-			model.put(first, true);
-//			System.out.print("Setting symbol " + first + " as true: " + "/nModel: " + model + "/nSymbols:" + symbols);
-			boolean pTrue = ttCheckAll(KB, alpha, rest, model);
-			model.put(first, false);
-//			System.out.print("Setting symbol " + first + " as false: " + "/nModel: " + model + "/nSymbols: " + symbols);
-			boolean pFalse = ttCheckAll(KB, alpha, rest, model);
-			return pTrue && pFalse;
+			int first = symbols[index];
+			model[first] = true;
+			if(!ttCheckAll(KB, alpha, symbols, index+1, model, entailed)) return false;
+			model[first] = false;
+			return ttCheckAll(KB, alpha, symbols, index+1, model, entailed);
 		}
 	}
 	
-//	Calculates the truth value for a statement using the model.
-	private static boolean plTrue(String statement, HashMap<String, Boolean> model) {
+//	Calculates the truth value for a statement using the model, by reading the statement again. ttEntails uses Formula.
+	static boolean plTrue(String statement, HashMap<String, Boolean> model) {
 		Stack<String> operators = new Stack<String>();
 		Stack<String> operands = new Stack<String>();
 		statement = statement.replaceAll("\\(", "( ").replaceAll("\\)", " )").replaceAll(" +", " ");